@@ -0,0 +1,44 @@
+#!/usr/bin/env bash
+# Сравнивает время извлечения строк offers последовательным StAX-проходом
+# и шардированным разбором при разной параллельности. Берётся длительность
+# события ru.andrew.TableExtract из записи JFR. Требуются собранный jar,
+# запущенный PostgreSQL и фид с секцией offers больше min-section-bytes.
+set -euo pipefail
+
+JAR=${JAR:-target/xml_parser-1.0-SNAPSHOT.jar}
+PORT=${PORT:-8083}
+TABLE=${TABLE:-offers}
+RUNS=${RUNS:-3}
+PARALLELISM=${PARALLELISM:-"1 2 4 8"}
+
+run() {
+    local label=$1
+    shift
+    java -jar "$JAR" --server.port="$PORT" "$@" > "bench-parse-$label.log" 2>&1 &
+    pid=$!
+    trap 'kill $pid 2>/dev/null || true' EXIT
+
+    until curl -sf "http://localhost:$PORT/api/v1" > /dev/null; do
+        sleep 1
+    done
+
+    curl -sf -X POST "http://localhost:$PORT/api/v1/diagnostics/jfr?durationSeconds=1800" > /dev/null
+    for _ in $(seq 1 "$RUNS"); do
+        curl -sf -X POST "http://localhost:$PORT/api/v1/tables/$TABLE/update?force=true" > /dev/null
+    done
+    curl -sf "http://localhost:$PORT/api/v1/diagnostics/jfr" -o "bench-parse-$label.jfr"
+    curl -sf -X DELETE "http://localhost:$PORT/api/v1/diagnostics/jfr" > /dev/null
+
+    echo "== $label"
+    jfr print --events ru.andrew.TableExtract "bench-parse-$label.jfr" \
+        | grep -E 'duration|rows|parallel'
+
+    kill $pid
+    wait $pid 2>/dev/null || true
+}
+
+run sequential --xml.parallel.enabled=false
+for threads in $PARALLELISM; do
+    run "parallel-$threads" --xml.parallel.enabled=true --xml.parallel.parallelism="$threads" \
+        --xml.parallel.min-section-bytes=0
+done
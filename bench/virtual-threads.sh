@@ -0,0 +1,33 @@
+#!/usr/bin/env bash
+# Сравнивает пропускную способность и хвостовые задержки API
+# на платформенных и виртуальных потоках. Требуются собранный jar, запущенный PostgreSQL и hey.
+set -euo pipefail
+
+JAR=${JAR:-target/xml_parser-1.0-SNAPSHOT.jar}
+PORT=${PORT:-8082}
+REQUESTS=${REQUESTS:-20000}
+CONCURRENCY=${CONCURRENCY:-400}
+TOMCAT_THREADS=${TOMCAT_THREADS:-50}
+ENDPOINT=${ENDPOINT:-/api/v1/tables/offers/ddl-change}
+
+for virtual in false true; do
+    VIRTUAL_THREADS=$virtual SERVER_TOMCAT_THREADS_MAX=$TOMCAT_THREADS \
+        java -jar "$JAR" --server.port="$PORT" > "bench-virtual-$virtual.log" 2>&1 &
+    pid=$!
+    trap 'kill $pid 2>/dev/null || true' EXIT
+
+    until curl -sf "http://localhost:$PORT/api/v1" > /dev/null; do
+        sleep 1
+    done
+
+    curl -sf -X POST "http://localhost:$PORT/api/v1/tables/update-all" > /dev/null &
+    sync_pid=$!
+
+    echo "== virtual threads: $virtual"
+    hey -n "$REQUESTS" -c "$CONCURRENCY" "http://localhost:$PORT$ENDPOINT" \
+        | grep -E 'Requests/sec|50% in|90% in|99% in'
+
+    wait $sync_pid || true
+    kill $pid
+    wait $pid 2>/dev/null || true
+done
@@ -4,6 +4,13 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Getter
 @Setter
@@ -11,4 +18,72 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "xml")
 public class Config {
     private String path;
+    private Download download = new Download();
+    private Parallel parallel = new Parallel();
+    private Ddl ddl = new Ddl();
+    private Buffer buffer = new Buffer();
+    private Cluster cluster = new Cluster();
+    private Sync sync = new Sync();
+    private Map<String, Partitioning> partitioning = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Download {
+        private String directory = System.getProperty("java.io.tmpdir") + "/xml-parser";
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration readTimeout = Duration.ofSeconds(30);
+        private Duration totalTimeout = Duration.ofMinutes(30);
+        private int maxAttempts = 5;
+        private Duration initialBackoff = Duration.ofSeconds(1);
+        private Duration maxBackoff = Duration.ofSeconds(30);
+        private long checkpointBytes = 8L * 1024 * 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class Parallel {
+        private boolean enabled = false;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private long minSectionBytes = 8L * 1024 * 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class Ddl {
+        private boolean indexes = true;
+        private boolean foreignKeys = false;
+    }
+
+    @Getter
+    @Setter
+    public static class Buffer {
+        private DataSize heapBudget = DataSize.ofMegabytes(64);
+        private String spillDirectory = System.getProperty("java.io.tmpdir") + "/xml-parser/spill";
+        private int batchSize = 5000;
+    }
+
+    @Getter
+    @Setter
+    public static class Cluster {
+        private String nodeId;
+        private Duration waitTimeout = Duration.ZERO;
+        private Duration pollInterval = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Sync {
+        private int threads = 4;
+        private int partitionThreads = 4;
+    }
+
+    @Getter
+    @Setter
+    public static class Partitioning {
+        private String strategy = "hash";
+        private String column;
+        private int partitions = 8;
+        private List<String> bounds = new ArrayList<>();
+        private boolean parallelLoad = false;
+    }
 }
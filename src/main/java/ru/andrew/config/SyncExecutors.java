@@ -0,0 +1,48 @@
+package ru.andrew.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SyncExecutors implements DisposableBean {
+
+    private final ThreadPoolTaskExecutor tables;
+    private final ThreadPoolTaskExecutor partitions;
+
+    @Autowired
+    public SyncExecutors(Config config, @Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        this.tables = executor("sync-", config.getSync().getThreads(), virtual);
+        this.partitions = executor("partition-load-", config.getSync().getPartitionThreads(), virtual);
+    }
+
+    public AsyncTaskExecutor tables() {
+        return tables;
+    }
+
+    public AsyncTaskExecutor partitions() {
+        return partitions;
+    }
+
+    @Override
+    public void destroy() {
+        tables.shutdown();
+        partitions.shutdown();
+    }
+
+    private static ThreadPoolTaskExecutor executor(String prefix, int threads, boolean virtual) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, threads));
+        executor.setMaxPoolSize(Math.max(1, threads));
+        executor.setThreadNamePrefix(prefix);
+        if (virtual) {
+            executor.setThreadFactory(Thread.ofVirtual().name(prefix, 1).factory());
+        }
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.andrew.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.andrew.jfr.RecordingService;
+import ru.andrew.parser.dto.StatusResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/diagnostics/jfr")
+@Tag(name = "Diagnostics API", description = "Запись Java Flight Recorder по требованию")
+public class DiagnosticsController {
+
+    private final RecordingService recordingService;
+
+    @PostMapping
+    @Operation(summary = "Начать запись JFR",
+               description = "Запускает ограниченную по времени и размеру запись JFR с событиями загрузки, разбора и синхронизации")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Запись запущена"),
+        @ApiResponse(responseCode = "500", description = "Запись уже идёт или JFR недоступен")
+    })
+    public ResponseEntity<StatusResponse> start(
+            @Parameter(description = "Длительность записи в секундах (не более 1800)", example = "300")
+            @RequestParam(defaultValue = "300") long durationSeconds) {
+        try {
+            String name = recordingService.start(Duration.ofSeconds(durationSeconds));
+            return ResponseEntity.ok(new StatusResponse("ok", "Запись " + name + " запущена"));
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при запуске записи JFR: " + e.getMessage(), e);
+        }
+    }
+
+    @GetMapping
+    @Operation(summary = "Выгрузить запись JFR", description = "Возвращает текущее содержимое записи в формате .jfr")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Запись выгружена"),
+        @ApiResponse(responseCode = "500", description = "Запись не запущена")
+    })
+    public ResponseEntity<StreamingResponseBody> dump() {
+        try {
+            Path file = recordingService.dump();
+            StreamingResponseBody body = out -> {
+                try {
+                    Files.copy(file, out);
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            };
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(Files.size(file))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(file.getFileName().toString())
+                            .build().toString())
+                    .body(body);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при выгрузке записи JFR: " + e.getMessage(), e);
+        }
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Остановить запись JFR", description = "Останавливает и удаляет текущую запись")
+    public ResponseEntity<StatusResponse> stop() {
+        recordingService.stop();
+        return ResponseEntity.ok(new StatusResponse("ok", "Запись остановлена"));
+    }
+}
@@ -6,13 +6,24 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.andrew.database.CategoryRepository;
+import ru.andrew.database.SyncCoordinator;
+import ru.andrew.database.TableExporter;
 import ru.andrew.parser.Parser;
 import ru.andrew.parser.dto.*;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequiredArgsConstructor
@@ -20,7 +31,12 @@ import java.util.List;
 @Tag(name = "XML Parser API", description = "API для работы с XML парсером и базой данных")
 public class MainController {
 
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     private final Parser parser;
+    private final TableExporter tableExporter;
+    private final SyncCoordinator syncCoordinator;
+    private final CategoryRepository categoryRepository;
 
     @GetMapping
     @Operation(summary = "Проверка работы API", description = "Возвращает статус работы API")
@@ -33,11 +49,12 @@ public class MainController {
                description = "Возвращает названия таблиц из XML (currency, categories, offers)")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Список таблиц успешно получен"),
+        @ApiResponse(responseCode = "304", description = "Версия фида не изменилась"),
         @ApiResponse(responseCode = "500", description = "Ошибка при обработке XML")
     })
-    public ResponseEntity<List<String>> getTableNames() {
+    public ResponseEntity<List<String>> getTableNames(@Parameter(hidden = true) WebRequest request) {
         try {
-            return ResponseEntity.ok(parser.getTableNames());
+            return conditional(request, parser.getFeedVersion(), parser::getTableNames);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при получении списка таблиц: " + e.getMessage(), e);
         }
@@ -48,13 +65,15 @@ public class MainController {
                description = "Возвращает наименования столбцов таблицы из XML")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Список столбцов успешно получен"),
+        @ApiResponse(responseCode = "304", description = "Версия фида не изменилась"),
         @ApiResponse(responseCode = "500", description = "Ошибка при обработке XML")
     })
     public ResponseEntity<List<String>> getColumnNames(
             @Parameter(description = "Название таблицы", required = true, example = "offers")
-            @PathVariable String tableName) {
+            @PathVariable String tableName,
+            @Parameter(hidden = true) WebRequest request) {
         try {
-            return ResponseEntity.ok(parser.getColumnNames(tableName));
+            return conditional(request, parser.getFeedVersion(), () -> parser.getColumnNames(tableName));
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при получении столбцов: " + e.getMessage(), e);
         }
@@ -65,13 +84,15 @@ public class MainController {
                description = "Создает SQL для создания таблицы динамически из XML")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "DDL успешно сгенерирован"),
+        @ApiResponse(responseCode = "304", description = "Версии фида и схемы БД не изменились"),
         @ApiResponse(responseCode = "500", description = "Ошибка при генерации DDL")
     })
     public ResponseEntity<DdlResponse> getTableDDL(
             @Parameter(description = "Название таблицы", required = true, example = "offers")
-            @PathVariable String tableName) {
+            @PathVariable String tableName,
+            @Parameter(hidden = true) WebRequest request) {
         try {
-            return ResponseEntity.ok(parser.getTableDDLResponse(tableName));
+            return conditional(request, parser.getSchemaVersion(), () -> parser.getTableDDLResponse(tableName));
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при генерации DDL: " + e.getMessage(), e);
         }
@@ -82,13 +103,15 @@ public class MainController {
                description = "Возвращает SQL для добавления новых столбцов (допустимо только добавление)")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "DDL изменений успешно сгенерирован"),
+        @ApiResponse(responseCode = "304", description = "Версии фида и схемы БД не изменились"),
         @ApiResponse(responseCode = "500", description = "Ошибка при генерации DDL")
     })
     public ResponseEntity<DdlChangeResponse> getDDLChange(
             @Parameter(description = "Название таблицы", required = true, example = "offers")
-            @PathVariable String tableName) {
+            @PathVariable String tableName,
+            @Parameter(hidden = true) WebRequest request) {
         try {
-            return ResponseEntity.ok(parser.getDDLChangeResponse(tableName));
+            return conditional(request, parser.getSchemaVersion(), () -> parser.getDDLChangeResponse(tableName));
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при генерации DDL изменений: " + e.getMessage(), e);
         }
@@ -113,22 +136,109 @@ public class MainController {
         }
     }
 
+    @GetMapping("/tables/{tableName}/export")
+    @Operation(summary = "Выгрузить таблицу в CSV или NDJSON",
+               description = "Потоково выгружает таблицу из базы данных через COPY TO STDOUT")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Выгрузка начата"),
+        @ApiResponse(responseCode = "500", description = "Таблица, столбец или формат не найдены")
+    })
+    public ResponseEntity<StreamingResponseBody> exportTable(
+            @Parameter(description = "Название таблицы", required = true, example = "offers")
+            @PathVariable String tableName,
+            @Parameter(description = "Формат выгрузки: csv или ndjson", example = "csv")
+            @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "Список выгружаемых столбцов, по умолчанию все")
+            @RequestParam(required = false) List<String> columns,
+            @Parameter(description = "Сжать выгрузку gzip")
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        try {
+            String sql = tableExporter.prepareCopySql(tableName, format, columns, parser.getTableNames());
+            String extension = format.toLowerCase();
+            MediaType mediaType = "csv".equals(extension)
+                    ? new MediaType("text", "csv")
+                    : new MediaType("application", "x-ndjson");
+
+            StreamingResponseBody body = out -> {
+                if (gzip) {
+                    GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                    tableExporter.copyOut(sql, gzipOut);
+                    gzipOut.finish();
+                } else {
+                    tableExporter.copyOut(sql, out);
+                }
+            };
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(mediaType)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(tableName.toLowerCase() + "." + extension)
+                            .build().toString());
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return response.body(body);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при выгрузке таблицы: " + e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/categories/{categoryId}/subtree")
+    @Operation(summary = "Получить поддерево категории",
+               description = "Возвращает категорию и всех её потомков с глубиной по материализованной иерархии")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Поддерево успешно получено"),
+        @ApiResponse(responseCode = "500", description = "Категория не найдена или иерархия не построена")
+    })
+    public ResponseEntity<List<CategoryRepository.Category>> getCategorySubtree(
+            @Parameter(description = "Идентификатор категории", required = true, example = "1")
+            @PathVariable String categoryId) {
+        try {
+            return ResponseEntity.ok(categoryRepository.getSubtree(categoryId));
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при получении поддерева категории: " + e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/categories/{categoryId}/offer-count")
+    @Operation(summary = "Посчитать товары в категории",
+               description = "Возвращает число категорий в поддереве и число товаров во всех них")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Количество успешно получено"),
+        @ApiResponse(responseCode = "500", description = "Категория не найдена или иерархия не построена")
+    })
+    public ResponseEntity<CategoryRepository.OfferCount> getCategoryOfferCount(
+            @Parameter(description = "Идентификатор категории", required = true, example = "1")
+            @PathVariable String categoryId) {
+        try {
+            return ResponseEntity.ok(categoryRepository.getOfferCount(categoryId));
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при подсчёте товаров категории: " + e.getMessage(), e);
+        }
+    }
+
     @PostMapping("/tables/{tableName}/update")
     @Operation(summary = "Обновить данные в таблице", 
                description = "Обновляет данные в таблице на основе XML. Если изменилась структура - выдает exception")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Данные успешно обновлены"),
         @ApiResponse(responseCode = "400", description = "Изменена структура таблицы"),
+        @ApiResponse(responseCode = "409", description = "Обновление таблицы уже выполняется на другом узле"),
         @ApiResponse(responseCode = "500", description = "Ошибка при обновлении")
     })
     public ResponseEntity<UpdateResponse> updateTable(
             @Parameter(description = "Название таблицы", required = true, example = "offers")
-            @PathVariable String tableName) {
+            @PathVariable String tableName,
+            @Parameter(description = "Обновить таблицу, даже если её секция в XML не изменилась")
+            @RequestParam(defaultValue = "false") boolean force) {
         try {
-            UpdateResponse response = parser.updateResponse(tableName);
+            UpdateResponse response = parser.updateResponse(tableName, force);
             if ("error".equals(response.getStatus())) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
+            if ("in_progress".equals(response.getStatus())) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при обновлении таблицы: " + e.getMessage(), e);
@@ -140,14 +250,48 @@ public class MainController {
                description = "Обновляет данные во всех таблицах на основе XML")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Все таблицы успешно обновлены"),
+        @ApiResponse(responseCode = "409", description = "Обновление уже выполняется на другом узле"),
         @ApiResponse(responseCode = "500", description = "Ошибка при обновлении")
     })
-    public ResponseEntity<UpdateResponse> updateAll() {
+    public ResponseEntity<UpdateResponse> updateAll(
+            @Parameter(description = "Обновить все таблицы, даже если их секции в XML не изменились")
+            @RequestParam(defaultValue = "false") boolean force) {
         try {
-            return ResponseEntity.ok(parser.updateAllResponse());
+            UpdateResponse response = parser.updateAllResponse(force);
+            if ("in_progress".equals(response.getStatus())) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            return ResponseEntity.ok(response);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при обновлении таблиц: " + e.getMessage(), e);
         }
     }
-}
 
+    @GetMapping("/cluster/nodes")
+    @Operation(summary = "Получить узлы кластера",
+               description = "Возвращает узлы сервиса и опубликованные ими версии фида")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Список узлов успешно получен"),
+        @ApiResponse(responseCode = "500", description = "Ошибка при обращении к базе данных")
+    })
+    public ResponseEntity<List<SyncCoordinator.Node>> getClusterNodes() {
+        try {
+            return ResponseEntity.ok(syncCoordinator.getNodes());
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при получении узлов кластера: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> ResponseEntity<T> conditional(WebRequest request, String version, Callable<T> body) throws Exception {
+        if (request.checkNotModified(version)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(version)
+                    .cacheControl(CACHE_CONTROL)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(version)
+                .cacheControl(CACHE_CONTROL)
+                .body(body.call());
+    }
+}
@@ -0,0 +1,151 @@
+package ru.andrew.database;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Component
+public class CategoryRepository {
+
+    public static final String CLOSURE_TABLE = "categories_closure";
+
+    private static final String CLOSURE_TABLE_DDL = "CREATE TABLE IF NOT EXISTS " + CLOSURE_TABLE + " (\n"
+            + "    ancestor_id TEXT NOT NULL,\n"
+            + "    descendant_id TEXT NOT NULL,\n"
+            + "    depth INTEGER NOT NULL,\n"
+            + "    PRIMARY KEY (ancestor_id, descendant_id)\n"
+            + ");";
+    private static final String CLOSURE_INDEX_DDL = "CREATE INDEX IF NOT EXISTS idx_" + CLOSURE_TABLE
+            + "_descendant_id ON " + CLOSURE_TABLE + " (descendant_id, depth)";
+    private static final String SUBTREE_SQL = """
+            SELECT c.id, c.parentid, c.name, cc.depth
+            FROM categories_closure cc
+            JOIN categories c ON c.id = cc.descendant_id
+            WHERE cc.ancestor_id = ?
+            ORDER BY cc.depth, c.id""";
+    private static final String CATEGORY_COUNT_SQL =
+            "SELECT COUNT(*) FROM categories_closure WHERE ancestor_id = ?";
+    private static final String OFFER_COUNT_SQL = """
+            SELECT COUNT(*)
+            FROM categories_closure cc
+            JOIN offers o ON o.categoryid = cc.descendant_id
+            WHERE cc.ancestor_id = ?""";
+
+    private final DataSource dataSource;
+
+    public record Category(String id, String parentId, String name, int depth) {
+    }
+
+    public record OfferCount(String categoryId, long categories, long offers) {
+    }
+
+    record ClosureRow(String ancestorId, String descendantId, int depth) {
+    }
+
+    @Autowired
+    public CategoryRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public String closureTableDDL() {
+        return CLOSURE_TABLE_DDL;
+    }
+
+    public String closureIndexDDL() {
+        return CLOSURE_INDEX_DDL;
+    }
+
+    public long replaceClosure(SyncSession session, Map<String, String> parents) throws SQLException {
+        session.execute("DELETE FROM " + CLOSURE_TABLE);
+
+        long[] rows = {0};
+        String sql = "COPY " + CLOSURE_TABLE + " (ancestor_id, descendant_id, depth) FROM STDIN WITH (FORMAT csv)";
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(session.copyIn(sql), StandardCharsets.UTF_8))) {
+            walkClosure(parents, row -> {
+                try {
+                    writer.write(csv(row.ancestorId()) + "," + csv(row.descendantId()) + "," + row.depth() + "\n");
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            throw new SQLException("COPY FROM STDIN failed: " + e.getMessage(), e);
+        }
+        return rows[0];
+    }
+
+    static void walkClosure(Map<String, String> parents, Consumer<ClosureRow> sink) {
+        Set<String> visited = new HashSet<>();
+        for (String id : parents.keySet()) {
+            visited.clear();
+            String ancestor = id;
+            int depth = 0;
+            while (ancestor != null && parents.containsKey(ancestor) && visited.add(ancestor)) {
+                sink.accept(new ClosureRow(ancestor, id, depth));
+                ancestor = parents.get(ancestor);
+                depth++;
+            }
+        }
+    }
+
+    public List<Category> getSubtree(String categoryId) throws SQLException {
+        List<Category> categories = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SUBTREE_SQL)) {
+            statement.setString(1, categoryId);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    categories.add(new Category(rs.getString(1), rs.getString(2), rs.getString(3), rs.getInt(4)));
+                }
+            }
+        }
+        if (categories.isEmpty()) {
+            throw new RuntimeException("Category " + categoryId + " does not exist");
+        }
+        return categories;
+    }
+
+    public OfferCount getOfferCount(String categoryId) throws SQLException {
+        try (SyncSession session = SyncSession.open(dataSource)) {
+            long categories = count(session, CATEGORY_COUNT_SQL, categoryId);
+            if (categories == 0) {
+                throw new RuntimeException("Category " + categoryId + " does not exist");
+            }
+            long offers = session.tableExists("offers") && session.getTableColumns("offers").contains("categoryid")
+                    ? count(session, OFFER_COUNT_SQL, categoryId)
+                    : 0;
+            return new OfferCount(categoryId, categories, offers);
+        }
+    }
+
+    private long count(SyncSession session, String sql, String categoryId) throws SQLException {
+        try (PreparedStatement statement = session.getConnection().prepareStatement(sql)) {
+            statement.setString(1, categoryId);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
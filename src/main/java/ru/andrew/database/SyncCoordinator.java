@@ -0,0 +1,253 @@
+package ru.andrew.database;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.andrew.config.Config;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Component
+public class SyncCoordinator {
+
+    private static final String LOCK_PREFIX = "xml-parser:";
+    private static final String TABLES_DDL = """
+            CREATE TABLE IF NOT EXISTS xml_sync_lease (
+                lock_name TEXT PRIMARY KEY,
+                node_id TEXT NOT NULL,
+                status TEXT NOT NULL,
+                message TEXT,
+                started_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+                finished_at TIMESTAMPTZ
+            );
+            CREATE TABLE IF NOT EXISTS xml_cluster_node (
+                node_id TEXT PRIMARY KEY,
+                feed_url TEXT NOT NULL,
+                feed_version TEXT NOT NULL,
+                loaded_at TIMESTAMPTZ NOT NULL DEFAULT now()
+            )""";
+
+    private final DataSource dataSource;
+    private final Config.Cluster settings;
+    private final String nodeId;
+    private volatile boolean initialized;
+
+    public record Lease(boolean acquired, String nodeId, String status, String message, Instant startedAt,
+                        Instant finishedAt) {
+        public boolean isRunning() {
+            return "running".equals(status);
+        }
+    }
+
+    public record Node(String nodeId, String feedUrl, String feedVersion, Instant loadedAt) {
+    }
+
+    @Autowired
+    public SyncCoordinator(DataSource dataSource, Config config) {
+        this.dataSource = dataSource;
+        this.settings = config.getCluster();
+        this.nodeId = settings.getNodeId() != null && !settings.getNodeId().isBlank()
+                ? settings.getNodeId()
+                : hostName() + ":" + ProcessHandle.current().pid();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Lease acquire(SyncSession session, String lockName) throws SQLException {
+        Connection connection = session.getConnection();
+        ensureTables(connection);
+        String key = LOCK_PREFIX + lockName;
+        if (session.tryAdvisoryLock(key)) {
+            return start(connection, lockName);
+        }
+
+        Instant waitStart = databaseTime(connection);
+        Lease holder = read(connection, lockName);
+        Set<Instant> observedRuns = new HashSet<>();
+        long deadline = System.nanoTime() + settings.getWaitTimeout().toNanos();
+        while (System.nanoTime() < deadline) {
+            if (holder != null && holder.isRunning()) {
+                observedRuns.add(holder.startedAt());
+            }
+            sleep();
+            if (session.tryAdvisoryLock(key)) {
+                Lease finished = read(connection, lockName);
+                if (finished != null && !finished.isRunning()
+                        && (observedRuns.contains(finished.startedAt())
+                        || finished.finishedAt() != null && !finished.finishedAt().isBefore(waitStart))) {
+                    return finished;
+                }
+                return start(connection, lockName);
+            }
+            Lease current = read(connection, lockName);
+            if (current != null) {
+                holder = current;
+            }
+        }
+        return new Lease(false, holder != null ? holder.nodeId() : "unknown", "running", null,
+                holder != null ? holder.startedAt() : null, null);
+    }
+
+    public void release(SyncSession session, String lockName, String status, String message) throws SQLException {
+        String sql = "UPDATE xml_sync_lease SET status = ?, message = ?, finished_at = now() "
+                + "WHERE lock_name = ? AND node_id = ?";
+        Connection connection = session.getConnection();
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, status);
+            statement.setString(2, message);
+            statement.setString(3, lockName);
+            statement.setString(4, nodeId);
+            statement.executeUpdate();
+        }
+        commit(connection);
+    }
+
+    public void publishFeedVersion(String feedUrl, String feedVersion) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            publishFeedVersion(connection, feedUrl, feedVersion);
+        }
+    }
+
+    public void publishFeedVersion(SyncSession session, String feedUrl, String feedVersion) throws SQLException {
+        publishFeedVersion(session.getConnection(), feedUrl, feedVersion);
+        commit(session.getConnection());
+    }
+
+    public String latestFeedVersion(SyncSession session, String feedUrl) throws SQLException {
+        Connection connection = session.getConnection();
+        ensureTables(connection);
+        String sql = "SELECT feed_version FROM xml_cluster_node WHERE feed_url = ? ORDER BY loaded_at DESC LIMIT 1";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, feedUrl);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    public List<Node> getNodes() throws SQLException {
+        List<Node> nodes = new ArrayList<>();
+        String sql = "SELECT node_id, feed_url, feed_version, loaded_at FROM xml_cluster_node ORDER BY loaded_at DESC";
+        try (Connection connection = dataSource.getConnection()) {
+            ensureTables(connection);
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(sql)) {
+                while (rs.next()) {
+                    nodes.add(new Node(rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getTimestamp(4).toInstant()));
+                }
+            }
+        }
+        return nodes;
+    }
+
+    private void publishFeedVersion(Connection connection, String feedUrl, String feedVersion)
+            throws SQLException {
+        ensureTables(connection);
+        String sql = "INSERT INTO xml_cluster_node (node_id, feed_url, feed_version, loaded_at) "
+                + "VALUES (?, ?, ?, now()) ON CONFLICT (node_id) DO UPDATE SET "
+                + "feed_url = EXCLUDED.feed_url, feed_version = EXCLUDED.feed_version, loaded_at = EXCLUDED.loaded_at";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, nodeId);
+            statement.setString(2, feedUrl);
+            statement.setString(3, feedVersion);
+            statement.executeUpdate();
+        }
+    }
+
+    private Lease start(Connection connection, String lockName) throws SQLException {
+        String sql = "INSERT INTO xml_sync_lease (lock_name, node_id, status, message, started_at, finished_at) "
+                + "VALUES (?, ?, 'running', NULL, now(), NULL) ON CONFLICT (lock_name) DO UPDATE SET "
+                + "node_id = EXCLUDED.node_id, status = EXCLUDED.status, message = NULL, "
+                + "started_at = EXCLUDED.started_at, finished_at = NULL RETURNING started_at";
+        Lease lease;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, lockName);
+            statement.setString(2, nodeId);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                lease = new Lease(true, nodeId, "running", null, rs.getTimestamp(1).toInstant(), null);
+            }
+        }
+        commit(connection);
+        return lease;
+    }
+
+    private Lease read(Connection connection, String lockName) throws SQLException {
+        String sql = "SELECT node_id, status, message, started_at, finished_at FROM xml_sync_lease WHERE lock_name = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, lockName);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next()
+                        ? new Lease(false, rs.getString(1), rs.getString(2), rs.getString(3),
+                                rs.getTimestamp(4).toInstant(),
+                                rs.getTimestamp(5) != null ? rs.getTimestamp(5).toInstant() : null)
+                        : null;
+            }
+        }
+    }
+
+    private Instant databaseTime(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT clock_timestamp()")) {
+            rs.next();
+            return rs.getTimestamp(1).toInstant();
+        }
+    }
+
+    private void commit(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(settings.getPollInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Waiting for cluster sync interrupted", e);
+        }
+    }
+
+    private void ensureTables(Connection connection) throws SQLException {
+        if (initialized) {
+            return;
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT pg_advisory_xact_lock(hashtextextended('" + LOCK_PREFIX + "ddl', 0))");
+            statement.execute(TABLES_DDL);
+            connection.commit();
+        } finally {
+            connection.rollback();
+            connection.setAutoCommit(autoCommit);
+        }
+        initialized = true;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package ru.andrew.database;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import javax.sql.DataSource;
+import java.io.OutputStream;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SyncSession implements AutoCloseable {
+
+    private static final String TABLE_EXISTS_SQL =
+            "SELECT EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = ?)";
+    private static final String TABLE_COLUMNS_SQL =
+            "SELECT column_name FROM information_schema.columns WHERE table_name = ? ORDER BY ordinal_position";
+    private static final String UNIQUE_INDEX_SQL = """
+            SELECT EXISTS (
+                SELECT 1 FROM pg_index i
+                JOIN pg_class c ON c.oid = i.indrelid
+                JOIN pg_attribute a ON a.attrelid = c.oid AND a.attnum = i.indkey[0]
+                WHERE c.relname = ? AND a.attname = ? AND i.indisunique AND i.indnatts = 1
+            )""";
+    private static final String INDEX_EXISTS_SQL = """
+            SELECT EXISTS (
+                SELECT 1 FROM pg_index i
+                JOIN pg_class c ON c.oid = i.indrelid
+                JOIN pg_attribute a ON a.attrelid = c.oid AND a.attnum = i.indkey[0]
+                WHERE c.relname = ? AND a.attname = ? AND i.indisvalid
+            )""";
+    private static final String INVALID_INDEX_SQL = """
+            SELECT EXISTS (
+                SELECT 1 FROM pg_index i
+                JOIN pg_class c ON c.oid = i.indexrelid
+                WHERE c.relname = ? AND NOT i.indisvalid
+            )""";
+    private static final String PARTITIONED_SQL = """
+            SELECT EXISTS (
+                SELECT 1 FROM pg_partitioned_table p
+                JOIN pg_class c ON c.oid = p.partrelid
+                WHERE c.relname = ?
+            )""";
+    private static final String CONSTRAINT_EXISTS_SQL =
+            "SELECT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ?)";
+    private static final String SCHEMA_FINGERPRINT_SQL = """
+            SELECT md5(coalesce(string_agg(entry, '|' ORDER BY entry), '')) FROM (
+                SELECT 'r:' || c.relname || ':' || c.relkind::text AS entry
+                FROM pg_class c WHERE c.relname::text = ANY (?) AND c.relkind IN ('r', 'p')
+                UNION ALL
+                SELECT 'c:' || table_name || '.' || column_name || ':' || data_type || ':' || is_nullable
+                FROM information_schema.columns WHERE table_name::text = ANY (?)
+                UNION ALL
+                SELECT 'i:' || c.relname || ':' || pg_get_indexdef(i.indexrelid) || ':' || i.indisvalid
+                FROM pg_index i JOIN pg_class c ON c.oid = i.indrelid WHERE c.relname::text = ANY (?)
+                UNION ALL
+                SELECT 'k:' || c.relname || ':' || pg_get_constraintdef(k.oid) || ':' || k.convalidated
+                FROM pg_constraint k JOIN pg_class c ON c.oid = k.conrelid WHERE c.relname::text = ANY (?)
+                UNION ALL
+                SELECT 'p:' || p.relname || ':' || c.relname || ':' || pg_get_expr(c.relpartbound, c.oid)
+                FROM pg_inherits h
+                JOIN pg_class p ON p.oid = h.inhparent
+                JOIN pg_class c ON c.oid = h.inhrelid
+                WHERE p.relname::text = ANY (?)
+            ) s""";
+    private static final String LEAF_PARTITIONS_SQL = """
+            SELECT t.relid::regclass::text, pg_get_partition_constraintdef(t.relid)
+            FROM pg_partition_tree(?::regclass) t
+            WHERE t.isleaf
+            ORDER BY t.relid::regclass::text""";
+    private static final String TRY_ADVISORY_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtextextended(?, 0))";
+
+    private final Connection connection;
+    private boolean committed;
+    private boolean advisoryLocked;
+
+    private SyncSession(Connection connection) {
+        this.connection = connection;
+    }
+
+    public static SyncSession open(DataSource dataSource) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            return new SyncSession(connection);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public boolean tableExists(String tableName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(TABLE_EXISTS_SQL)) {
+            statement.setString(1, tableName.toLowerCase());
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    public List<String> getTableColumns(String tableName) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(TABLE_COLUMNS_SQL)) {
+            statement.setString(1, tableName.toLowerCase());
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(rs.getString(1));
+                }
+            }
+        }
+        return columns;
+    }
+
+    public boolean isColumnUnique(String tableName, String columnName) throws SQLException {
+        String sql = "SELECT COUNT(*) as total, COUNT(DISTINCT " + quote(columnName.toLowerCase())
+                + ") as distinct_count FROM " + quote(tableName.toLowerCase());
+
+        Savepoint savepoint = connection.setSavepoint();
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet rs = statement.executeQuery()) {
+            boolean unique = false;
+            if (rs.next()) {
+                long total = rs.getLong("total");
+                long distinct = rs.getLong("distinct_count");
+                unique = total == distinct && total > 0;
+            }
+            connection.releaseSavepoint(savepoint);
+            return unique;
+        } catch (SQLException e) {
+            connection.rollback(savepoint);
+            throw e;
+        }
+    }
+
+    public boolean invalidIndexExists(String indexName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INVALID_INDEX_SQL)) {
+            statement.setString(1, indexName.toLowerCase());
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    public boolean indexExists(String tableName, String columnName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INDEX_EXISTS_SQL)) {
+            statement.setString(1, tableName);
+            statement.setString(2, columnName);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    public boolean isPartitioned(String tableName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(PARTITIONED_SQL)) {
+            statement.setString(1, tableName.toLowerCase());
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    public Map<String, String> getLeafPartitions(String tableName) throws SQLException {
+        Map<String, String> partitions = new LinkedHashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(LEAF_PARTITIONS_SQL)) {
+            statement.setString(1, tableName.toLowerCase());
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    partitions.put(rs.getString(1), rs.getString(2));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    public boolean constraintExists(String constraintName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(CONSTRAINT_EXISTS_SQL)) {
+            statement.setString(1, constraintName);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    public String schemaFingerprint(Collection<String> tableNames) throws SQLException {
+        Array tables = connection.createArrayOf("text",
+                tableNames.stream().map(String::toLowerCase).toArray(String[]::new));
+        try (PreparedStatement statement = connection.prepareStatement(SCHEMA_FINGERPRINT_SQL)) {
+            for (int i = 1; i <= 5; i++) {
+                statement.setArray(i, tables);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    public boolean tryAdvisoryLock(String lockName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(TRY_ADVISORY_LOCK_SQL)) {
+            statement.setString(1, lockName);
+            try (ResultSet rs = statement.executeQuery()) {
+                boolean locked = rs.next() && rs.getBoolean(1);
+                advisoryLocked |= locked;
+                return locked;
+            }
+        }
+    }
+
+    public void ensureUniqueConstraint(String tableName, String columnName) throws SQLException {
+        boolean hasUniqueIndex;
+        try (PreparedStatement statement = connection.prepareStatement(UNIQUE_INDEX_SQL)) {
+            statement.setString(1, tableName);
+            statement.setString(2, columnName);
+            try (ResultSet rs = statement.executeQuery()) {
+                hasUniqueIndex = rs.next() && rs.getBoolean(1);
+            }
+        }
+
+        if (!hasUniqueIndex) {
+            execute(String.format(
+                "CREATE UNIQUE INDEX IF NOT EXISTS idx_%s_%s ON %s (%s)",
+                tableName, columnName, tableName, columnName
+            ));
+        }
+    }
+
+    public void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    public int executeUpdate(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            return statement.executeUpdate(sql);
+        }
+    }
+
+    public void executeBatch(String sql, List<Object[]> batchParams) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Object[] params : batchParams) {
+                for (int i = 0; i < params.length; i++) {
+                    statement.setObject(i + 1, params[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    public OutputStream copyIn(String sql) throws SQLException {
+        return new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql);
+    }
+
+    public void executeAfterCommit(String sql) throws SQLException {
+        if (!committed) {
+            throw new IllegalStateException("Session transaction is still open");
+        }
+        connection.setAutoCommit(true);
+        execute(sql);
+    }
+
+    public void commit() throws SQLException {
+        connection.commit();
+        committed = true;
+    }
+
+    public void rollback() throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+            connection.setAutoCommit(true);
+            if (advisoryLocked) {
+                execute("SELECT pg_advisory_unlock_all()");
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
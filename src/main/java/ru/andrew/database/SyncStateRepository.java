@@ -0,0 +1,63 @@
+package ru.andrew.database;
+
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+@Component
+public class SyncStateRepository {
+
+    private static final String TABLE_DDL = """
+            CREATE TABLE IF NOT EXISTS xml_sync_state (
+                table_name TEXT PRIMARY KEY,
+                section_digest TEXT NOT NULL,
+                columns TEXT NOT NULL,
+                synced_at TIMESTAMPTZ NOT NULL DEFAULT now()
+            )""";
+
+    private volatile boolean initialized;
+
+    public boolean matches(Connection connection, String tableName, String digest, List<String> columns)
+            throws SQLException {
+        String sql = "SELECT section_digest, columns FROM xml_sync_state WHERE table_name = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, tableName.toLowerCase());
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next()
+                        && digest.equals(rs.getString("section_digest"))
+                        && String.join(",", columns).equals(rs.getString("columns"));
+            }
+        }
+    }
+
+    public void save(Connection connection, String tableName, String digest, List<String> columns)
+            throws SQLException {
+        String sql = "INSERT INTO xml_sync_state (table_name, section_digest, columns, synced_at) "
+                + "VALUES (?, ?, ?, now()) ON CONFLICT (table_name) DO UPDATE SET "
+                + "section_digest = EXCLUDED.section_digest, columns = EXCLUDED.columns, synced_at = EXCLUDED.synced_at";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, tableName.toLowerCase());
+            statement.setString(2, digest);
+            statement.setString(3, String.join(",", columns));
+            statement.executeUpdate();
+        }
+    }
+
+    public void ensureTable(Connection connection) throws SQLException {
+        if (initialized) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(TABLE_DDL);
+        }
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+        initialized = true;
+    }
+}
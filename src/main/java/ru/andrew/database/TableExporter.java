@@ -0,0 +1,100 @@
+package ru.andrew.database;
+
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+public class TableExporter {
+
+    private static final String TABLE_COLUMNS_SQL = """
+            SELECT n.nspname, a.attname
+            FROM pg_class c
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            JOIN pg_attribute a ON a.attrelid = c.oid AND a.attnum > 0 AND NOT a.attisdropped
+            WHERE n.nspname = current_schema() AND c.relname = ? AND c.relkind IN ('r', 'p')
+            ORDER BY a.attnum""";
+
+    private final DataSource dataSource;
+
+    @Autowired
+    public TableExporter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public String prepareCopySql(String tableName, String format, List<String> columns,
+                                 Collection<String> exportableTables) throws SQLException {
+        String table = tableName.toLowerCase();
+        if (exportableTables.stream().noneMatch(table::equalsIgnoreCase)) {
+            throw new RuntimeException("Table " + tableName + " is not a feed table");
+        }
+
+        List<String> tableColumns = new ArrayList<>();
+        String schema = getTableColumns(table, tableColumns);
+        if (schema == null) {
+            throw new RuntimeException("Table " + tableName + " does not exist");
+        }
+
+        List<String> projection = new ArrayList<>();
+        if (columns == null || columns.isEmpty()) {
+            projection.addAll(tableColumns);
+        } else {
+            for (String column : columns) {
+                String columnLower = column.trim().toLowerCase();
+                if (!tableColumns.contains(columnLower)) {
+                    throw new RuntimeException("Column " + column + " does not exist in table " + tableName);
+                }
+                projection.add(columnLower);
+            }
+        }
+
+        String select = "SELECT " + projection.stream().map(this::quote).collect(Collectors.joining(", "))
+                + " FROM " + quote(schema) + "." + quote(table);
+
+        return switch (format.toLowerCase()) {
+            case "csv" -> "COPY (" + select + ") TO STDOUT WITH (FORMAT csv, HEADER true)";
+            case "ndjson" -> "COPY (SELECT row_to_json(r) FROM (" + select + ") r) TO STDOUT "
+                    + "WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')";
+            default -> throw new RuntimeException("Unsupported export format: " + format);
+        };
+    }
+
+    public void copyOut(String sql, OutputStream out) throws IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+        } catch (SQLException e) {
+            throw new IOException("COPY TO STDOUT failed: " + e.getMessage(), e);
+        }
+    }
+
+    private String getTableColumns(String tableName, List<String> columns) throws SQLException {
+        String schema = null;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(TABLE_COLUMNS_SQL)) {
+            stmt.setString(1, tableName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    schema = rs.getString(1);
+                    columns.add(rs.getString(2));
+                }
+            }
+        }
+        return schema;
+    }
+
+    private String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
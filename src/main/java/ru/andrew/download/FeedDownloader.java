@@ -0,0 +1,282 @@
+package ru.andrew.download;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.andrew.config.Config;
+import ru.andrew.jfr.FeedFetchEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@Component
+public class FeedDownloader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int RETAINED_VERSIONS = 2;
+
+    private final Config.Download settings;
+
+    @Autowired
+    public FeedDownloader(Config config) {
+        this.settings = config.getDownload();
+    }
+
+    public record Download(Path file, String digest) {
+    }
+
+    public Download download(String url) {
+        URI uri = URI.create(url);
+        if ("file".equalsIgnoreCase(uri.getScheme())) {
+            Path file = Path.of(uri);
+            try {
+                return new Download(file, sha256(file));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read XML from " + url, e);
+            }
+        }
+
+        long deadline = System.nanoTime() + settings.getTotalTimeout().toNanos();
+        Path directory = Path.of(settings.getDirectory());
+        String name = "feed-" + urlHash(url);
+        Path part = directory.resolve(name + ".xml.part");
+        Path validatorFile = directory.resolve(name + ".xml.validator");
+
+        IOException lastError = null;
+        for (int attempt = 1; attempt <= settings.getMaxAttempts(); attempt++) {
+            try {
+                Files.createDirectories(directory);
+                Path file = attempt(uri, attempt, part, validatorFile, deadline);
+                String digest = sha256(file);
+                return new Download(publish(directory, name, file, digest), digest);
+            } catch (IOException e) {
+                lastError = e;
+            }
+
+            if (attempt < settings.getMaxAttempts()) {
+                sleepBeforeRetry(attempt, deadline);
+            }
+        }
+
+        throw new RuntimeException("Failed to fetch XML from " + url + " after "
+                + settings.getMaxAttempts() + " attempts", lastError);
+    }
+
+    private Path attempt(URI uri, int attempt, Path part, Path validatorFile, long deadline) throws IOException {
+        long offset = Files.exists(part) ? Files.size(part) : 0;
+        String validator = offset > 0 && Files.exists(validatorFile) ? Files.readString(validatorFile) : null;
+        if (offset > 0 && validator == null) {
+            discard(part, validatorFile);
+            offset = 0;
+        }
+        FeedFetchEvent event = new FeedFetchEvent();
+        event.begin();
+        event.url = uri.toString();
+        event.attempt = attempt;
+        event.resumedFrom = offset;
+
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setConnectTimeout((int) settings.getConnectTimeout().toMillis());
+        connection.setReadTimeout((int) settings.getReadTimeout().toMillis());
+        connection.setRequestProperty("Accept-Encoding", "identity");
+        if (offset > 0) {
+            connection.setRequestProperty("Range", "bytes=" + offset + "-");
+            connection.setRequestProperty("If-Range", validator);
+        }
+
+        try {
+            int status = connection.getResponseCode();
+            event.status = status;
+            String responseValidator = connection.getHeaderField("ETag") != null
+                    ? connection.getHeaderField("ETag")
+                    : connection.getHeaderField("Last-Modified");
+            long expectedSize;
+            boolean append;
+
+            if (status == HttpURLConnection.HTTP_PARTIAL) {
+                String contentRange = connection.getHeaderField("Content-Range");
+                if (contentRange == null || !contentRange.startsWith("bytes " + offset + "-")
+                        || validator == null || !validator.equals(responseValidator)) {
+                    discard(part, validatorFile);
+                    throw new IOException("Unexpected partial response: " + contentRange);
+                }
+                expectedSize = parseTotalSize(contentRange);
+                append = true;
+            } else if (status == HttpURLConnection.HTTP_OK) {
+                expectedSize = connection.getContentLengthLong();
+                append = false;
+            } else if (status == 416) {
+                discard(part, validatorFile);
+                throw new IOException("Range not satisfiable, restarting download");
+            } else if (status == HttpURLConnection.HTTP_CLIENT_TIMEOUT || status == 429 || status >= 500) {
+                throw new IOException("Failed to fetch XML: HTTP " + status);
+            } else {
+                throw new RuntimeException("Failed to fetch XML: HTTP " + status);
+            }
+
+            if (responseValidator != null) {
+                Files.writeString(validatorFile, responseValidator);
+            } else {
+                Files.deleteIfExists(validatorFile);
+            }
+
+            long start = append ? offset : 0;
+            event.bytes = copyBody(connection, part, append, start, deadline) - start;
+
+            long actualSize = Files.size(part);
+            if (expectedSize >= 0 && actualSize != expectedSize) {
+                if (actualSize > expectedSize) {
+                    discard(part, validatorFile);
+                }
+                throw new IOException("Downloaded size " + actualSize + " does not match expected " + expectedSize);
+            }
+            if (actualSize == 0) {
+                discard(part, validatorFile);
+                throw new RuntimeException("XML response is empty");
+            }
+
+            Files.deleteIfExists(validatorFile);
+            return part;
+        } finally {
+            connection.disconnect();
+            event.commit();
+        }
+    }
+
+    private Path publish(Path directory, String name, Path part, String digest) throws IOException {
+        Path target = directory.resolve(name + "-" + digest.substring(0, 16) + ".xml");
+        if (Files.exists(target)) {
+            Files.delete(part);
+        } else {
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+        Files.deleteIfExists(directory.resolve(name + ".xml"));
+
+        List<Path> versions;
+        try (Stream<Path> files = Files.list(directory)) {
+            versions = files
+                    .filter(file -> file.getFileName().toString().matches(Pattern.quote(name) + "-[0-9a-f]{16}\\.xml"))
+                    .sorted(Comparator.comparing(this::lastModified).reversed())
+                    .toList();
+        }
+        for (Path old : versions.subList(Math.min(RETAINED_VERSIONS, versions.size()), versions.size())) {
+            if (!old.equals(target)) {
+                Files.deleteIfExists(old);
+            }
+        }
+        return target;
+    }
+
+    private FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private String sha256(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    private long copyBody(HttpURLConnection connection, Path part, boolean append, long written, long deadline)
+            throws IOException {
+        StandardOpenOption mode = append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        try (InputStream in = connection.getInputStream();
+             FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long nextCheckpoint = written + settings.getCheckpointBytes();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    out.write(chunk);
+                }
+                written += read;
+
+                if (written >= nextCheckpoint) {
+                    out.force(false);
+                    nextCheckpoint = written + settings.getCheckpointBytes();
+                }
+                if (System.nanoTime() > deadline) {
+                    out.force(false);
+                    throw new RuntimeException("Feed download exceeded total timeout of "
+                            + settings.getTotalTimeout() + " at " + written + " bytes");
+                }
+            }
+            out.force(false);
+        }
+        return written;
+    }
+
+    private void sleepBeforeRetry(int attempt, long deadline) {
+        long base = settings.getInitialBackoff().toMillis() << Math.min(attempt - 1, 20);
+        long cap = Math.min(base, settings.getMaxBackoff().toMillis());
+        long delay = cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+
+        long remaining = (deadline - System.nanoTime()) / 1_000_000;
+        if (delay >= remaining) {
+            throw new RuntimeException("Feed download exceeded total timeout of " + settings.getTotalTimeout());
+        }
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Feed download interrupted", e);
+        }
+    }
+
+    private long parseTotalSize(String contentRange) {
+        int slash = contentRange.lastIndexOf('/');
+        if (slash < 0 || "*".equals(contentRange.substring(slash + 1).trim())) {
+            return -1;
+        }
+        return Long.parseLong(contentRange.substring(slash + 1).trim());
+    }
+
+    private void discard(Path part, Path validatorFile) throws IOException {
+        Files.deleteIfExists(part);
+        Files.deleteIfExists(validatorFile);
+    }
+
+    private String urlHash(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(url.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.andrew.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ru.andrew.BatchFlush")
+@Label("Batch Flush")
+@Category({"XML Parser", "Database"})
+public class BatchFlushEvent extends Event {
+    @Label("Table")
+    public String table;
+
+    @Label("SQL Kind")
+    public String sqlKind;
+
+    @Label("Rows")
+    public long rows;
+}
@@ -0,0 +1,17 @@
+package ru.andrew.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ru.andrew.Ddl")
+@Label("DDL")
+@Category({"XML Parser", "Database"})
+public class DdlEvent extends Event {
+    @Label("Table")
+    public String table;
+
+    @Label("SQL Kind")
+    public String sqlKind;
+}
@@ -0,0 +1,29 @@
+package ru.andrew.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ru.andrew.FeedFetch")
+@Label("Feed Fetch")
+@Category({"XML Parser", "Feed"})
+public class FeedFetchEvent extends Event {
+    @Label("URL")
+    public String url;
+
+    @Label("Attempt")
+    public int attempt;
+
+    @Label("HTTP Status")
+    public int status;
+
+    @Label("Resumed From")
+    @DataAmount
+    public long resumedFrom;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
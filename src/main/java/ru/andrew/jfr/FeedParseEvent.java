@@ -0,0 +1,25 @@
+package ru.andrew.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ru.andrew.FeedParse")
+@Label("Feed Parse")
+@Category({"XML Parser", "Feed"})
+public class FeedParseEvent extends Event {
+    @Label("File")
+    public String file;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Tables")
+    public int tables;
+
+    @Label("Rows")
+    public long rows;
+}
@@ -0,0 +1,85 @@
+package ru.andrew.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+public class RecordingService {
+
+    private static final long MAX_SIZE = 256L * 1024 * 1024;
+    private static final Duration MAX_DURATION = Duration.ofMinutes(30);
+    private static final List<Class<? extends jdk.jfr.Event>> EVENTS = List.of(
+            FeedFetchEvent.class, FeedParseEvent.class, TableExtractEvent.class, DdlEvent.class, BatchFlushEvent.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Recording recording;
+
+    public String start(Duration duration) {
+        lock.lock();
+        try {
+            if (recording != null && recording.getState() == RecordingState.RUNNING) {
+                throw new RuntimeException("Recording " + recording.getName() + " is already running");
+            }
+            closeRecording();
+
+            Duration bounded = duration.compareTo(MAX_DURATION) > 0 ? MAX_DURATION : duration;
+            Recording newRecording = new Recording(Configuration.getConfiguration("profile"));
+            newRecording.setName("xml-parser-" + System.currentTimeMillis());
+            newRecording.setMaxSize(MAX_SIZE);
+            newRecording.setDuration(bounded);
+            newRecording.setToDisk(true);
+            for (Class<? extends jdk.jfr.Event> event : EVENTS) {
+                newRecording.enable(event);
+            }
+            newRecording.start();
+            recording = newRecording;
+            return recording.getName();
+        } catch (IOException | ParseException e) {
+            throw new RuntimeException("Failed to start JFR recording", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path dump() {
+        lock.lock();
+        try {
+            if (recording == null || recording.getState() == RecordingState.CLOSED) {
+                throw new RuntimeException("No JFR recording has been started");
+            }
+            Path file = Files.createTempFile(recording.getName(), ".jfr");
+            recording.dump(file);
+            return file;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to dump JFR recording", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        lock.lock();
+        try {
+            closeRecording();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.andrew.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ru.andrew.TableExtract")
+@Label("Table Extract")
+@Category({"XML Parser", "Sync"})
+public class TableExtractEvent extends Event {
+    @Label("Table")
+    public String table;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Parallel")
+    public boolean parallel;
+
+    @Label("Spilled Bytes")
+    @DataAmount
+    public long spilledBytes;
+}
@@ -0,0 +1,107 @@
+package ru.andrew.parser;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.andrew.config.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Component
+public class DdlAdvisor {
+
+    private static final List<String> SQL_KINDS = List.of("CREATE INDEX CONCURRENTLY", "CREATE INDEX",
+            "DROP INDEX CONCURRENTLY", "DROP INDEX", "ALTER TABLE");
+    private static final Pattern CONCURRENT_INDEX = Pattern.compile("^CREATE INDEX CONCURRENTLY IF NOT EXISTS (\\S+) ");
+
+    private final Config.Ddl settings;
+
+    @Autowired
+    public DdlAdvisor(Config config) {
+        this.settings = config.getDdl();
+    }
+
+    public record Reference(String table, String column, String referencedTable, String referencedColumn) {
+    }
+
+    public List<Reference> detectReferences(String tableName, List<String> columns,
+                                            Map<String, String> itemNames, Map<String, List<String>> tableColumns) {
+        List<Reference> references = new ArrayList<>();
+        if (!settings.isIndexes() && !settings.isForeignKeys()) {
+            return references;
+        }
+
+        for (String column : columns) {
+            if (column.length() <= 2 || !column.endsWith("Id")) {
+                continue;
+            }
+            String prefix = column.substring(0, column.length() - 2);
+
+            String target = null;
+            if ("parent".equalsIgnoreCase(prefix)) {
+                target = tableName;
+            } else {
+                for (Map.Entry<String, String> item : itemNames.entrySet()) {
+                    if (prefix.equalsIgnoreCase(item.getValue())) {
+                        target = item.getKey();
+                        break;
+                    }
+                }
+            }
+
+            List<String> targetColumns = target != null ? tableColumns.get(target) : null;
+            if (targetColumns != null && targetColumns.contains("id")) {
+                references.add(new Reference(tableName.toLowerCase(), column.toLowerCase(), target.toLowerCase(), "id"));
+            }
+        }
+        return references;
+    }
+
+    public boolean isIndexesEnabled() {
+        return settings.isIndexes();
+    }
+
+    public boolean isForeignKeysEnabled() {
+        return settings.isForeignKeys();
+    }
+
+    public String indexName(Reference reference) {
+        return "idx_" + reference.table() + "_" + reference.column();
+    }
+
+    public String constraintName(Reference reference) {
+        return "fk_" + reference.table() + "_" + reference.column();
+    }
+
+    public String indexSql(Reference reference, boolean concurrently) {
+        return "CREATE INDEX " + (concurrently ? "CONCURRENTLY " : "") + "IF NOT EXISTS "
+                + indexName(reference) + " ON " + reference.table() + " (" + reference.column() + ")";
+    }
+
+    public String dropIndexSql(Reference reference, boolean concurrently) {
+        return "DROP INDEX " + (concurrently ? "CONCURRENTLY " : "") + "IF EXISTS " + indexName(reference);
+    }
+
+    public String cleanupSql(String sql) {
+        Matcher matcher = CONCURRENT_INDEX.matcher(sql);
+        return matcher.find() ? "DROP INDEX CONCURRENTLY IF EXISTS " + matcher.group(1) : null;
+    }
+
+    public String foreignKeySql(Reference reference, boolean notValid) {
+        return "ALTER TABLE " + reference.table() + " ADD CONSTRAINT " + constraintName(reference)
+                + " FOREIGN KEY (" + reference.column() + ") REFERENCES "
+                + reference.referencedTable() + " (" + reference.referencedColumn() + ")"
+                + " DEFERRABLE INITIALLY DEFERRED" + (notValid ? " NOT VALID" : "");
+    }
+
+    public String sqlKind(String sql) {
+        return SQL_KINDS.stream().filter(sql::startsWith).findFirst().orElse("DDL");
+    }
+
+    public boolean requiresAutoCommit(String sql) {
+        return sql.startsWith("CREATE INDEX CONCURRENTLY") || sql.startsWith("DROP INDEX CONCURRENTLY");
+    }
+}
@@ -0,0 +1,15 @@
+package ru.andrew.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+record FeedOutline(List<String> tableNames, Map<String, String> itemNames, Map<String, List<String>> columns,
+                   Map<String, Long> itemCounts, List<String> parentPath) {
+
+    List<String> pathTo(String tableName) {
+        List<String> path = new ArrayList<>(parentPath);
+        path.add(tableName);
+        return path;
+    }
+}
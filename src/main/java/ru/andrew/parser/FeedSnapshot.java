@@ -0,0 +1,20 @@
+package ru.andrew.parser;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+record FeedSnapshot(Path file, FeedOutline outline, String version) {
+
+    List<String> tableNames() {
+        return new ArrayList<>(outline.tableNames());
+    }
+
+    List<String> columns(String tableName) {
+        return new ArrayList<>(outline.columns().getOrDefault(tableName, List.of()));
+    }
+
+    String itemName(String tableName) {
+        return outline.itemNames().get(tableName);
+    }
+}
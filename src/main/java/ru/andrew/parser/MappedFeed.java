@@ -0,0 +1,115 @@
+package ru.andrew.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+class MappedFeed {
+
+    private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([A-Za-z0-9._-]+)[\"']");
+
+    private final MappedByteBuffer buffer;
+    private final Charset charset;
+
+    private MappedFeed(MappedByteBuffer buffer, Charset charset) {
+        this.buffer = buffer;
+        this.charset = charset;
+    }
+
+    static MappedFeed open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Feed is too large to be memory-mapped: " + channel.size());
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedFeed(buffer, detectCharset(buffer));
+        }
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    Charset charset() {
+        return charset;
+    }
+
+    int[] section(String tableName) {
+        byte[] openTag = ("<" + tableName).getBytes(charset);
+        byte[] closeTag = ("</" + tableName + ">").getBytes(charset);
+
+        int open = indexOf(openTag, 0, buffer.limit());
+        while (open >= 0 && open + openTag.length < buffer.limit()) {
+            byte next = buffer.get(open + openTag.length);
+            if (next == '>' || next == ' ' || next == '\t' || next == '\r' || next == '\n') {
+                break;
+            }
+            open = indexOf(openTag, open + 1, buffer.limit());
+        }
+        if (open < 0 || open + openTag.length >= buffer.limit()) {
+            return null;
+        }
+
+        int start = indexOf(new byte[]{'>'}, open, buffer.limit()) + 1;
+        int end = indexOf(closeTag, start, buffer.limit());
+        if (end < 0) {
+            throw new IllegalStateException("Section <" + tableName + "> is not closed");
+        }
+        return new int[]{start, end};
+    }
+
+    String digest(String tableName) {
+        int[] section = section(tableName);
+        if (section == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(buffer.slice(section[0], section[1] - section[0]));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    int indexOf(byte[] pattern, int from, int to) {
+        int last = to - pattern.length;
+        for (int i = from; i <= last; i++) {
+            if (buffer.get(i) != pattern[0]) {
+                continue;
+            }
+            int j = 1;
+            while (j < pattern.length && buffer.get(i + j) == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Charset detectCharset(ByteBuffer buffer) {
+        byte[] head = new byte[Math.min(256, buffer.limit())];
+        buffer.get(0, head);
+        String prolog = new String(head, StandardCharsets.ISO_8859_1);
+
+        Matcher matcher = ENCODING.matcher(prolog.substring(0, Math.max(0, prolog.indexOf("?>"))));
+        Charset charset = matcher.find() ? Charset.forName(matcher.group(1)) : StandardCharsets.UTF_8;
+        if (!Arrays.equals("</a>".getBytes(charset), "</a>".getBytes(StandardCharsets.US_ASCII))) {
+            throw new IllegalStateException("Only ASCII-compatible feed encodings are supported: " + charset);
+        }
+        return charset;
+    }
+}
@@ -1,19 +1,21 @@
 package ru.andrew.parser;
 
-import org.xml.sax.SAXException;
 import ru.andrew.parser.dto.*;
 
-import java.io.IOException;
 import java.util.List;
 
 public interface Parser {
-    List<String> getTableNames() throws IOException, SAXException;
+    String getFeedVersion();
+
+    String getSchemaVersion();
+
+    List<String> getTableNames();
 
     DdlResponse getTableDDLResponse(String tableName);
 
-    UpdateResponse updateResponse(String tableName);
+    UpdateResponse updateResponse(String tableName, boolean force);
 
-    UpdateResponse updateAllResponse();
+    UpdateResponse updateAllResponse(boolean force);
 
     List<String> getColumnNames(String tableName);
 
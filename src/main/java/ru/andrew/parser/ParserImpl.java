@@ -1,14 +1,19 @@
 package ru.andrew.parser;
 
-import groovy.xml.XmlSlurper;
-import groovy.xml.slurpersupport.GPathResult;
-import groovy.xml.slurpersupport.NodeChild;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 import ru.andrew.config.Config;
+import ru.andrew.config.SyncExecutors;
+import ru.andrew.database.CategoryRepository;
 import ru.andrew.database.DatabaseConfig;
+import ru.andrew.database.SyncCoordinator;
+import ru.andrew.database.SyncSession;
+import ru.andrew.database.SyncStateRepository;
+import ru.andrew.download.FeedDownloader;
+import ru.andrew.jfr.BatchFlushEvent;
+import ru.andrew.jfr.DdlEvent;
+import ru.andrew.jfr.FeedParseEvent;
+import ru.andrew.jfr.TableExtractEvent;
 import ru.andrew.parser.dto.ColumnIdResponse;
 import ru.andrew.parser.dto.DdlChangeResponse;
 import ru.andrew.parser.dto.DdlResponse;
@@ -16,174 +21,210 @@ import ru.andrew.parser.dto.StatusResponse;
 import ru.andrew.parser.dto.UpdateResponse;
 
 import javax.sql.DataSource;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.StringReader;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Service
 public class ParserImpl implements Parser {
 
     private final Config config;
-    private final XmlSlurper slurper;
     private final DatabaseConfig databaseConfig;
     private final DataSource dataSource;
-    private String textXml;
-    private GPathResult parsedXml;
+    private final FeedDownloader feedDownloader;
+    private final StreamingFeedParser streamingFeedParser;
+    private final ShardedFeedParser shardedFeedParser;
+    private final SyncStateRepository syncStateRepository;
+    private final SyncExecutors syncExecutors;
+    private final DdlAdvisor ddlAdvisor;
+    private final PartitionPlanner partitionPlanner;
+    private final SyncCoordinator syncCoordinator;
+    private final CategoryRepository categoryRepository;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile FeedSnapshot snapshot;
+    private final Map<String, String> upsertSqlCache = new ConcurrentHashMap<>();
 
     @Autowired
-    public ParserImpl(Config config, DatabaseConfig databaseConfig, DataSource dataSource) {
-        try {
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-
-            factory.setNamespaceAware(false);
-            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", false);
-            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-
-            this.config = config;
-            this.databaseConfig = databaseConfig;
-            this.dataSource = dataSource;
-            slurper = new XmlSlurper(factory.newSAXParser());
-            slurper.setEntityResolver((publicId, systemId) -> new InputSource(new StringReader("")));
-            
-            loadXml();
-            
-        } catch (ParserConfigurationException | SAXException e) {
-            throw new RuntimeException("Failed to initialize XML parser", e);
-        }
+    public ParserImpl(Config config, DatabaseConfig databaseConfig, DataSource dataSource,
+                      FeedDownloader feedDownloader, StreamingFeedParser streamingFeedParser,
+                      ShardedFeedParser shardedFeedParser,
+                      SyncStateRepository syncStateRepository,
+                      SyncExecutors syncExecutors, DdlAdvisor ddlAdvisor,
+                      PartitionPlanner partitionPlanner, SyncCoordinator syncCoordinator,
+                      CategoryRepository categoryRepository) {
+        this.config = config;
+        this.databaseConfig = databaseConfig;
+        this.dataSource = dataSource;
+        this.feedDownloader = feedDownloader;
+        this.streamingFeedParser = streamingFeedParser;
+        this.shardedFeedParser = shardedFeedParser;
+        this.syncStateRepository = syncStateRepository;
+        this.syncExecutors = syncExecutors;
+        this.ddlAdvisor = ddlAdvisor;
+        this.partitionPlanner = partitionPlanner;
+        this.syncCoordinator = syncCoordinator;
+        this.categoryRepository = categoryRepository;
+
+        snapshot = loadXml();
+        publishFeedVersion(snapshot.version());
     }
 
-    private void loadXml() {
-        textXml = getXml();
-        if (!textXml.isEmpty()) {
-            try {
-                parsedXml = slurper.parseText(textXml);
-                if (parsedXml == null || parsedXml.isEmpty()) {
-                    throw new RuntimeException("Parsed XML is null or empty");
-                }
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to parse XML", e);
+    private FeedSnapshot loadXml() {
+        FeedDownloader.Download download = feedDownloader.download(config.getPath());
+        Path file = download.file();
+        try {
+            if (Files.size(file) == 0) {
+                throw new RuntimeException("Fetched XML is empty");
             }
-        } else {
-            throw new RuntimeException("Fetched XML is empty");
+            FeedParseEvent event = new FeedParseEvent();
+            event.begin();
+            FeedOutline parsed = streamingFeedParser.outline(file);
+            event.file = file.toString();
+            event.bytes = Files.size(file);
+            event.tables = parsed.tableNames().size();
+            event.rows = parsed.itemCounts().values().stream().mapToLong(Long::longValue).sum();
+            event.commit();
+            if (parsed.tableNames().isEmpty()) {
+                throw new RuntimeException("Parsed XML is null or empty");
+            }
+            return new FeedSnapshot(file, parsed, download.digest());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse XML", e);
         }
     }
 
-    private String getXml() {
+    private void publishFeedVersion(String version) {
         try {
-            URI path = URI.create(config.getPath());
-            HttpClient client = HttpClient.newHttpClient();
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(path)
-                    .GET()
-                    .build();
+            syncCoordinator.publishFeedVersion(config.getPath(), version);
+        } catch (SQLException ignored) {
+        }
+    }
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            if (response.statusCode() != 200) {
-                throw new RuntimeException("Failed to fetch XML: HTTP " + response.statusCode());
+    private FeedSnapshot snapshot() {
+        FeedSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        reloadLock.lock();
+        try {
+            if (snapshot == null) {
+                snapshot = loadXml();
+                publishFeedVersion(snapshot.version());
             }
+            return snapshot;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
 
-            String body = response.body();
-            if (body == null || body.trim().isEmpty()) {
-                throw new RuntimeException("XML response is empty");
+    private FeedSnapshot reloadIfStale(SyncSession session) throws SQLException {
+        String published = syncCoordinator.latestFeedVersion(session, config.getPath());
+        if (published == null || published.equals(snapshot().version())) {
+            return snapshot();
+        }
+        reloadLock.lock();
+        try {
+            if (!published.equals(snapshot.version())) {
+                snapshot = loadXml();
+                syncCoordinator.publishFeedVersion(session, config.getPath(), snapshot.version());
             }
-            
-            return body;
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException("Failed to fetch XML from " + config.getPath(), e);
+            return snapshot;
+        } finally {
+            reloadLock.unlock();
         }
     }
 
-    @Override
-    public List<String> getTableNames() {
-        if (parsedXml == null) {
-            loadXml();
-        }
-        
-        if (parsedXml == null) {
-            throw new RuntimeException("XML not loaded");
+    private UpdateResponse leaseResponse(String subject, SyncCoordinator.Lease lease) {
+        if (lease.isRunning()) {
+            return new UpdateResponse("in_progress", subject + " уже выполняется на узле " + lease.nodeId());
         }
-        
-        List<String> tableNames = new ArrayList<>();
-        GPathResult root = parsedXml;
-        
-        GPathResult shop = null;
-        try {
-            shop = (GPathResult) root.getProperty("shop");
-        } catch (Exception ignored) {
+        return new UpdateResponse(lease.status(), lease.message() + " (выполнено на узле " + lease.nodeId() + ")");
+    }
+
+    private FeedSnapshot publishedSnapshot() {
+        try (SyncSession session = SyncSession.open(dataSource)) {
+            return reloadIfStale(session);
+        } catch (SQLException e) {
+            return snapshot();
         }
-        
-        GPathResult target = (shop != null && !shop.isEmpty()) ? shop : root;
-        
-        Iterable<?> childrenObj = target.children();
-        if (childrenObj != null) {
-            for (Object child : childrenObj) {
-                if (child instanceof GPathResult childNode) {
-                    String name = childNode.name();
-                    if (name != null && !name.isEmpty()) {
-                        try {
-                            Iterable<?> childChildren = childNode.children();
-                            if (childChildren != null && childChildren.iterator().hasNext()) {
-                                tableNames.add(name);
-                            }
-                        } catch (Exception ignored) {
-                        }
-                    }
-                }
-            }
+    }
+
+    @Override
+    public String getFeedVersion() {
+        return publishedSnapshot().version();
+    }
+
+    @Override
+    public String getSchemaVersion() {
+        try (SyncSession session = SyncSession.open(dataSource)) {
+            FeedSnapshot feed = reloadIfStale(session);
+            return feed.version() + "-" + session.schemaFingerprint(feed.tableNames());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read database schema version", e);
         }
-        
-        return tableNames;
+    }
+
+    @Override
+    public List<String> getTableNames() {
+        return publishedSnapshot().tableNames();
     }
 
     @Override
     public DdlResponse getTableDDLResponse(String tableName) {
-        if (parsedXml == null) {
-            throw new RuntimeException("XML not loaded");
-        }
-        
-        List<String> columns = getColumnNames(tableName);
-        if (columns.isEmpty()) {
-            return new DdlResponse(tableName, "");
+        try (SyncSession session = SyncSession.open(dataSource)) {
+            FeedSnapshot feed = reloadIfStale(session);
+            List<String> columns = feed.columns(tableName);
+            if (columns.isEmpty()) {
+                return new DdlResponse(tableName, "");
+            }
+
+            Config.Partitioning partitioning = partitionPlanner.settingsFor(tableName);
+            StringBuilder ddl = new StringBuilder(generateTableDDL(session, tableName, columns, partitioning));
+            appendPartitionDDL(ddl, tableName, partitioning);
+            for (String statement : adviseDDL(session, feed, tableName, columns)) {
+                ddl.append("\n").append(statement).append(";");
+            }
+            return new DdlResponse(tableName, ddl.toString());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to generate DDL", e);
         }
-        
-        String ddl = generateTableDDL(tableName, columns);
-        return new DdlResponse(tableName, ddl);
     }
 
     @Override
-    public UpdateResponse updateResponse(String tableName) {
-        try {
-            validateTableStructure(tableName);
-            List<Map<String, Object>> data = extractTableData(tableName);
-            
-            if (!data.isEmpty()) {
-                String primaryKey = determinePrimaryKey(tableName, getColumnNames(tableName));
-                
-                if (!tableExists(tableName)) {
-                    String ddl = generateTableDDL(tableName, getColumnNames(tableName));
-                    executeDDL(ddl);
-                }
-                
-                updateTableData(tableName, data, primaryKey);
+    public UpdateResponse updateResponse(String tableName, boolean force) {
+        return updateResponse(null, tableName, force);
+    }
+
+    private UpdateResponse updateResponse(FeedSnapshot feed, String tableName, boolean force) {
+        try (SyncSession session = SyncSession.open(dataSource)) {
+            String lockName = "table:" + tableName.toLowerCase();
+            SyncCoordinator.Lease lease = syncCoordinator.acquire(session, lockName);
+            if (!lease.acquired()) {
+                return leaseResponse("Обновление таблицы " + tableName, lease);
+            }
+
+            try {
+                FeedSnapshot current = feed != null ? feed : reloadIfStale(session);
+                UpdateResponse response = syncTable(session, current, tableName, force);
+                syncCoordinator.release(session, lockName, response.getStatus(), response.getMessage());
+                return response;
+            } catch (Exception e) {
+                syncCoordinator.release(session, lockName, "error", e.getMessage());
+                throw e;
             }
-            
-            return new UpdateResponse("success", "Таблица " + tableName + " успешно обновлена");
         } catch (RuntimeException e) {
             if (e.getMessage() != null && e.getMessage().contains("structure changed")) {
                 return new UpdateResponse("error", "Структура таблицы изменилась: " + e.getMessage());
@@ -194,94 +235,145 @@ public class ParserImpl implements Parser {
         }
     }
 
-    @Override
-    public UpdateResponse updateAllResponse() {
-        try {
-            List<String> tableNames = getTableNames();
-            for (String tableName : tableNames) {
-                UpdateResponse response = updateResponse(tableName);
-                if ("error".equals(response.getStatus())) {
-                    return response;
-                }
+    private UpdateResponse syncTable(SyncSession session, FeedSnapshot feed, String tableName, boolean force)
+            throws Exception {
+        syncStateRepository.ensureTable(session.getConnection());
+        List<String> columns = feed.columns(tableName);
+        String digest = sectionDigest(feed, tableName);
+        boolean hierarchy = hasHierarchy(tableName, columns);
+        if (!force && digest != null && session.tableExists(tableName)
+                && (!hierarchy || session.tableExists(CategoryRepository.CLOSURE_TABLE))
+                && syncStateRepository.matches(session.getConnection(), tableName, digest, columns)) {
+            List<String> deferredDDL = executeAdvisedDDL(session, tableName, adviseDDL(session, feed, tableName, columns));
+            session.commit();
+            for (String statement : deferredDDL) {
+                executeDDL(session, tableName, ddlAdvisor.sqlKind(statement), statement);
             }
-            return new UpdateResponse("success", "Все таблицы успешно обновлены");
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка при обновлении таблиц: " + e.getMessage(), e);
-        }
-    }
-
-    @Override
-    public List<String> getColumnNames(String tableName) {
-        if (parsedXml == null) {
-            throw new RuntimeException("XML not loaded");
+            return new UpdateResponse("success",
+                    "Таблица " + tableName + " не изменилась, обновление пропущено", List.of(tableName));
         }
-        
-        Set<String> columns = new LinkedHashSet<>();
-        
-        try {
-            GPathResult root = parsedXml;
 
-            GPathResult shop = (GPathResult) root.getProperty("shop");
-            GPathResult target = (shop != null && !shop.isEmpty()) ? shop : root;
+        validateTableStructure(session, tableName, columns);
+        List<String> deferredDDL = new ArrayList<>();
 
-            GPathResult tableNode = (GPathResult) target.getProperty(tableName);
-            if (tableNode == null || tableNode.isEmpty()) {
-                return new ArrayList<>();
-            }
-            
-            if ("currencies".equalsIgnoreCase(tableName) || "categories".equalsIgnoreCase(tableName)) {
-                Object tableChildren = tableNode.children();
-                if (tableChildren instanceof Iterable<?> && ((Iterable<?>) tableChildren).iterator().hasNext()) {
-                    Iterator<?> iterator = ((Iterable<?>) tableChildren).iterator();
-                    if (iterator.hasNext()) {
-                        Object firstElement = iterator.next();
-                        if (firstElement instanceof NodeChild firstElementNode) {
-                            Map attributes = firstElementNode.attributes();
-                            if (attributes != null) {
-                                columns.addAll(attributes.keySet());
-                            }
+        try (RowBuffer data = extractTableData(feed, tableName)) {
+            if (!data.isEmpty()) {
+                String primaryKey = determinePrimaryKey(session, tableName, columns);
+                List<String> advisedDDL = adviseDDL(session, feed, tableName, columns);
+                boolean exists = session.tableExists(tableName);
+                Config.Partitioning partitioning = exists && !session.isPartitioned(tableName)
+                        ? null
+                        : partitionPlanner.settingsFor(tableName);
+
+                Set<String> values = new TreeSet<>();
+                if (partitioning != null) {
+                    String partitionColumn = partitionPlanner.partitionColumn(partitioning, columns, primaryKey);
+                    int partitionIndex = data.indexOf(partitionColumn);
+                    long missing = 0;
+                    for (Object[] row : data) {
+                        if (row[partitionIndex] == null) {
+                            missing++;
+                        } else if (partitionPlanner.isList(partitioning)) {
+                            values.add(row[partitionIndex].toString());
                         }
                     }
+                    if (missing > 0) {
+                        return new UpdateResponse("error", "Столбец секционирования " + partitionColumn
+                                + " не заполнен у " + missing + " строк таблицы " + tableName
+                                + ", а он входит в первичный ключ секционированной таблицы");
+                    }
                 }
-                if ("categories".equalsIgnoreCase(tableName)) {
-                    columns.add("name");
+            
+                if (!exists) {
+                    String ddl = generateTableDDL(session, tableName, columns, partitioning);
+                    executeDDL(session, tableName, "CREATE TABLE", ddl);
                 }
-            } 
-            else if ("offers".equalsIgnoreCase(tableName)) {
-                Object offersChildren = tableNode.children();
-                if (offersChildren instanceof Iterable<?> && ((Iterable<?>) offersChildren).iterator().hasNext()) {
-                    Iterator<?> iterator = ((Iterable<?>) offersChildren).iterator();
-                    if (iterator.hasNext()) {
-                        Object firstOffer = iterator.next();
-                        if (firstOffer instanceof NodeChild firstOfferNode) {
-                            Map attributes = firstOfferNode.attributes();
-                            if (attributes != null) {
-                                columns.addAll(attributes.keySet());
-                            }
-                            for (Object child : firstOfferNode.children()) {
-                                if (child instanceof GPathResult childNode) {
-                                    String name = childNode.name();
-                                    if (name != null && !name.isEmpty()) {
-                                        columns.add(name);
-                                    }
-                                }
-                            }
-                        }
+
+                if (partitioning != null) {
+                    for (String statement : partitionPlanner.partitionDDL(tableName, partitioning, values)) {
+                        executeDDL(session, tableName, "CREATE PARTITION", statement);
                     }
                 }
-            }
+
+                deferredDDL.addAll(executeAdvisedDDL(session, tableName, advisedDDL));
             
+                if (partitioning != null && partitioning.isParallelLoad()) {
+                    loadPartitionsInParallel(session, tableName, data, primaryKey, partitioning);
+                } else {
+                    updateTableData(session, tableName, data, primaryKey, partitioning);
+                }
+
+                if (hierarchy) {
+                    rebuildHierarchy(session, data);
+                }
+            }
+        }
+
+        if (digest != null) {
+            syncStateRepository.save(session.getConnection(), tableName, digest, columns);
+        }
+
+        session.commit();
+        for (String statement : deferredDDL) {
+            executeDDL(session, tableName, ddlAdvisor.sqlKind(statement), statement);
+        }
+        return new UpdateResponse("success", "Таблица " + tableName + " успешно обновлена");
+    }
+
+    @Override
+    public UpdateResponse updateAllResponse(boolean force) {
+        try (SyncSession feedSession = SyncSession.open(dataSource)) {
+            String lockName = "feed:" + config.getPath();
+            SyncCoordinator.Lease lease = syncCoordinator.acquire(feedSession, lockName);
+            if (!lease.acquired()) {
+                return leaseResponse("Обновление всех таблиц", lease);
+            }
+
+            try {
+                UpdateResponse response = syncAllTables(reloadIfStale(feedSession), force);
+                syncCoordinator.release(feedSession, lockName, response.getStatus(), response.getMessage());
+                return response;
+            } catch (Exception e) {
+                syncCoordinator.release(feedSession, lockName, "error", e.getMessage());
+                throw e;
+            }
         } catch (Exception e) {
-            throw new RuntimeException("Failed to get column names for table: " + tableName, e);
+            throw new RuntimeException("Ошибка при обновлении таблиц: " + e.getMessage(), e);
         }
-        
-        return new ArrayList<>(columns);
+    }
+
+    private UpdateResponse syncAllTables(FeedSnapshot feed, boolean force) throws Exception {
+        Map<Boolean, List<String>> waves = feed.tableNames().stream()
+                .collect(Collectors.partitioningBy(tableName -> references(feed, tableName, feed.columns(tableName))
+                        .stream()
+                        .anyMatch(reference -> !reference.referencedTable().equals(reference.table()))));
+
+        List<String> skippedTables = new ArrayList<>();
+        for (List<String> wave : List.of(waves.get(false), waves.get(true))) {
+            List<Future<UpdateResponse>> tasks = new ArrayList<>();
+            for (String tableName : wave) {
+                tasks.add(syncExecutors.tables().submit(() -> updateResponse(feed, tableName, force)));
+            }
+
+            for (UpdateResponse response : awaitAll(tasks)) {
+                if (!"success".equals(response.getStatus())) {
+                    return response;
+                }
+                skippedTables.addAll(response.getSkippedTables());
+            }
+        }
+        return new UpdateResponse("success", "Все таблицы успешно обновлены", skippedTables);
+    }
+
+    @Override
+    public List<String> getColumnNames(String tableName) {
+        return publishedSnapshot().columns(tableName);
     }
 
     @Override
     public ColumnIdResponse getColumnIdResponse(String tableName, String columnName) {
-        try {
-            boolean isId = isColumnUnique(tableName, columnName);
+        try (SyncSession session = SyncSession.open(dataSource)) {
+            boolean isId = isColumnUnique(session, tableName, columnName);
             String description = isId ? "Столбец уникален" : "Столбец содержит повторяющиеся значения";
             return new ColumnIdResponse(tableName, columnName, isId, description);
         } catch (SQLException e) {
@@ -291,21 +383,33 @@ public class ParserImpl implements Parser {
 
     @Override
     public DdlChangeResponse getDDLChangeResponse(String tableName) {
-        try {
-            if (!tableExists(tableName)) {
-                String ddl = generateTableDDL(tableName, getColumnNames(tableName));
-                return new DdlChangeResponse(tableName, ddl, true);
+        try (SyncSession session = SyncSession.open(dataSource)) {
+            FeedSnapshot feed = reloadIfStale(session);
+            List<String> xmlColumns = feed.columns(tableName);
+            Config.Partitioning partitioning = partitionPlanner.settingsFor(tableName);
+            if (!session.tableExists(tableName)) {
+                StringBuilder ddl = new StringBuilder(generateTableDDL(session, tableName, xmlColumns, partitioning));
+                appendPartitionDDL(ddl, tableName, partitioning);
+                for (String statement : adviseDDL(session, feed, tableName, xmlColumns)) {
+                    ddl.append("\n").append(statement).append(";");
+                }
+                return new DdlChangeResponse(tableName, ddl.toString(), true);
             }
             
-            List<String> xmlColumns = getColumnNames(tableName);
-            List<String> dbColumns = getTableColumns(tableName);
+            List<String> dbColumns = session.getTableColumns(tableName);
             
             List<String> newColumns = xmlColumns.stream()
                     .map(String::toLowerCase)
                     .filter(col -> !dbColumns.contains(col.toLowerCase()))
                     .toList();
+            List<String> advisedDDL = new ArrayList<>(adviseDDL(session, feed, tableName, xmlColumns));
+            if (partitioning != null && !session.isPartitioned(tableName)) {
+                String primaryKey = determinePrimaryKey(session, tableName, xmlColumns);
+                advisedDDL.add("-- table is not partitioned, recreate it to apply "
+                        + partitionPlanner.describe(partitioning, xmlColumns, primaryKey));
+            }
             
-            if (newColumns.isEmpty()) {
+            if (newColumns.isEmpty() && advisedDDL.isEmpty()) {
                 return new DdlChangeResponse(tableName, "Изменений не требуется", false);
             }
             
@@ -314,6 +418,9 @@ public class ParserImpl implements Parser {
                 ddl.append("ALTER TABLE ").append(tableName.toLowerCase())
                    .append(" ADD COLUMN ").append(column).append(" TEXT;\n");
             }
+            for (String statement : advisedDDL) {
+                ddl.append(statement).append(statement.startsWith("--") ? "\n" : ";\n");
+            }
             
             return new DdlChangeResponse(tableName, ddl.toString(), true);
             
@@ -327,34 +434,105 @@ public class ParserImpl implements Parser {
         return new StatusResponse("ok", "XML Parser API работает");
     }
 
-    private String generateTableDDL(String tableName, List<String> columns) {
+    private String generateTableDDL(SyncSession session, String tableName, List<String> columns,
+                                    Config.Partitioning partitioning) {
         StringBuilder ddl = new StringBuilder();
         ddl.append("CREATE TABLE IF NOT EXISTS ").append(tableName.toLowerCase()).append(" (\n");
         
-        String primaryKey = determinePrimaryKey(tableName, columns);
+        String primaryKey = determinePrimaryKey(session, tableName, columns);
+        List<String> conflictColumns = partitionPlanner.conflictColumns(partitioning, columns, primaryKey);
+        boolean compositeKey = conflictColumns.size() > 1;
         boolean hasPrimaryKey = false;
         
         for (int i = 0; i < columns.size(); i++) {
             String column = columns.get(i);
             ddl.append("    ").append(column.toLowerCase()).append(" TEXT");
             
-            if (column.equalsIgnoreCase(primaryKey) && !hasPrimaryKey) {
+            if (column.equalsIgnoreCase(primaryKey) && !hasPrimaryKey && !compositeKey) {
                 ddl.append(" PRIMARY KEY");
                 hasPrimaryKey = true;
             }
             
-            if (i < columns.size() - 1) {
+            if (i < columns.size() - 1 || compositeKey) {
                 ddl.append(",");
             }
             ddl.append("\n");
         }
+
+        if (compositeKey) {
+            ddl.append("    PRIMARY KEY (")
+               .append(conflictColumns.stream().map(String::toLowerCase).collect(Collectors.joining(", ")))
+               .append(")\n");
+        }
         
-        ddl.append(");");
+        ddl.append(")");
+        if (partitioning != null) {
+            ddl.append(partitionPlanner.partitionClause(partitioning, columns, primaryKey));
+        }
+        ddl.append(";");
         
         return ddl.toString();
     }
 
-    private String determinePrimaryKey(String tableName, List<String> columns) {
+    private void appendPartitionDDL(StringBuilder ddl, String tableName, Config.Partitioning partitioning) {
+        if (partitioning == null) {
+            return;
+        }
+        for (String statement : partitionPlanner.partitionDDL(tableName, partitioning, List.of())) {
+            ddl.append("\n").append(statement).append(";");
+        }
+    }
+
+    private List<String> adviseDDL(SyncSession session, FeedSnapshot feed, String tableName, List<String> columns)
+            throws SQLException {
+        boolean exists = session.tableExists(tableName);
+        boolean partitioned = exists
+                ? session.isPartitioned(tableName)
+                : partitionPlanner.settingsFor(tableName) != null;
+        List<String> statements = new ArrayList<>();
+        for (DdlAdvisor.Reference reference : references(feed, tableName, columns)) {
+            if (ddlAdvisor.isIndexesEnabled()
+                    && (!exists || !session.indexExists(reference.table(), reference.column()))) {
+                if (exists && session.invalidIndexExists(ddlAdvisor.indexName(reference))) {
+                    statements.add(ddlAdvisor.dropIndexSql(reference, !partitioned));
+                }
+                statements.add(ddlAdvisor.indexSql(reference, exists && !partitioned));
+            }
+
+            boolean referencedTableExists = reference.referencedTable().equals(reference.table())
+                    || session.tableExists(reference.referencedTable());
+            if (ddlAdvisor.isForeignKeysEnabled() && referencedTableExists
+                    && (!exists || !session.constraintExists(ddlAdvisor.constraintName(reference)))) {
+                statements.add(ddlAdvisor.foreignKeySql(reference, !partitioned));
+            }
+        }
+        return statements;
+    }
+
+    private List<String> executeAdvisedDDL(SyncSession session, String tableName, List<String> advisedDDL)
+            throws SQLException {
+        List<String> deferredDDL = new ArrayList<>();
+        for (String statement : advisedDDL) {
+            if (ddlAdvisor.requiresAutoCommit(statement)) {
+                deferredDDL.add(statement);
+            } else {
+                executeDDL(session, tableName, ddlAdvisor.sqlKind(statement), statement);
+            }
+        }
+        return deferredDDL;
+    }
+
+    private List<DdlAdvisor.Reference> references(FeedSnapshot feed, String tableName, List<String> columns) {
+        Map<String, String> itemNames = new LinkedHashMap<>();
+        Map<String, List<String>> tableColumns = new LinkedHashMap<>();
+        for (String table : feed.tableNames()) {
+            itemNames.put(table, feed.itemName(table));
+            tableColumns.put(table, feed.columns(table));
+        }
+        return ddlAdvisor.detectReferences(tableName, columns, itemNames, tableColumns);
+    }
+
+    private String determinePrimaryKey(SyncSession session, String tableName, List<String> columns) {
         if (columns.contains("id")) {
             return "id";
         }
@@ -364,9 +542,9 @@ public class ParserImpl implements Parser {
         }
         
         try {
-            if (tableExists(tableName)) {
+            if (session.tableExists(tableName)) {
                 for (String column : columns) {
-                    if (isColumnUnique(tableName, column)) {
+                    if (isColumnUnique(session, tableName, column)) {
                         return column;
                     }
                 }
@@ -377,71 +555,63 @@ public class ParserImpl implements Parser {
         return columns.isEmpty() ? "id" : columns.get(0);
     }
 
-    private List<Map<String, Object>> extractTableData(String tableName) {
-        List<Map<String, Object>> data = new ArrayList<>();
-        
+    private RowBuffer extractTableData(FeedSnapshot feed, String tableName) {
+        TableExtractEvent event = new TableExtractEvent();
+        event.begin();
+        event.table = tableName;
         try {
-            GPathResult tableNode = getGPathResult(tableName);
+            RowBuffer data = extractRows(feed, tableName, event);
+            event.rows = data.size();
+            event.spilledBytes = data.getSpilledBytes();
+            return data;
+        } finally {
+            event.commit();
+        }
+    }
+
+    private RowBuffer newRowBuffer(List<String> columns, long heapBudget) {
+        return new RowBuffer(columns, heapBudget, Path.of(config.getBuffer().getSpillDirectory()));
+    }
 
-            if (tableNode == null || tableNode.isEmpty()) {
+    private RowBuffer extractRows(FeedSnapshot feed, String tableName, TableExtractEvent event) {
+        long heapBudget = config.getBuffer().getHeapBudget().toBytes();
+        if (shardedFeedParser.isApplicable(feed.file(), tableName)) {
+            RowBuffer data = newRowBuffer(feed.columns(tableName), heapBudget);
+            try {
+                event.parallel = true;
+                shardedFeedParser.parse(feed.file(), tableName, feed.itemName(tableName), data::add);
                 return data;
+            } catch (RuntimeException ignored) {
+                data.close();
+                event.parallel = false;
             }
-            
-            for (Object item : tableNode) {
-                if (item instanceof NodeChild itemNode) {
-                    Map<String, Object> row = new LinkedHashMap<>();
+        }
 
-                    Map attributes = itemNode.attributes();
-                    if (attributes != null) {
-                        row.putAll(attributes);
-                    }
-                    
-                    if ("categories".equalsIgnoreCase(tableName)) {
-                        String text = itemNode.text();
-                        if (text != null && !text.trim().isEmpty()) {
-                            row.put("name", text.trim());
-                        }
-                    } else {
-                        for (Object child : itemNode.children()) {
-                            if (child instanceof GPathResult childNode) {
-                                String name = childNode.name();
-                                if (name != null && !name.isEmpty()) {
-                                    String value = childNode.text();
-                                    row.put(name, value != null ? value.trim() : null);
-                                }
-                            }
-                        }
-                    }
-                    
-                    if (!row.isEmpty()) {
-                        data.add(row);
-                    }
-                }
-            }
-            
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to extract data for table: " + tableName, e);
+        RowBuffer data = newRowBuffer(feed.columns(tableName), heapBudget);
+        try {
+            streamingFeedParser.parse(feed.file(), feed.outline(), tableName, data::add);
+            return data;
+        } catch (RuntimeException e) {
+            data.close();
+            throw e;
         }
-        
-        return data;
     }
 
-    private GPathResult getGPathResult(String tableName) {
-        GPathResult root = parsedXml;
-
-        GPathResult shop = (GPathResult) root.getProperty("shop");
-        GPathResult target = (shop != null && !shop.isEmpty()) ? shop : root;
-
-        return (GPathResult) target.getProperty(tableName);
+    private String sectionDigest(FeedSnapshot feed, String tableName) {
+        try {
+            return MappedFeed.open(feed.file()).digest(tableName);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
     }
 
-    private void validateTableStructure(String tableName) throws SQLException {
-        if (!tableExists(tableName)) {
+    private void validateTableStructure(SyncSession session, String tableName, List<String> xmlColumns)
+            throws SQLException {
+        if (!session.tableExists(tableName)) {
             return;
         }
         
-        List<String> xmlColumns = getColumnNames(tableName);
-        List<String> dbColumns = getTableColumns(tableName);
+        List<String> dbColumns = session.getTableColumns(tableName);
         
         Set<String> xmlColumnsLower = xmlColumns.stream()
                 .map(String::toLowerCase)
@@ -457,155 +627,284 @@ public class ParserImpl implements Parser {
         }
     }
 
-    private void updateTableData(String tableName, List<Map<String, Object>> data, String primaryKey) throws SQLException {
+    private void loadPartitionsInParallel(SyncSession session, String tableName, RowBuffer data, String primaryKey,
+                                          Config.Partitioning partitioning) throws Exception {
+        String tableNameLower = tableName.toLowerCase();
+        String stage = "xml_stage_" + tableNameLower;
+        List<String> columns = data.getColumns();
+        List<String> conflictColumns = partitionPlanner.conflictColumns(partitioning, columns, primaryKey);
+        try {
+            executeDDL(session, stage, "DROP TABLE", "DROP TABLE IF EXISTS " + stage);
+            executeDDL(session, stage, "CREATE TABLE",
+                    "CREATE UNLOGGED TABLE " + stage + " (LIKE " + tableNameLower + ")");
+            copyRows(session, stage, columns, data);
+            if (conflictColumns.size() > 1) {
+                deleteMovedRows(session, tableNameLower, stage, primaryKey, conflictColumns.get(1));
+            }
+            Map<String, String> partitions = session.getLeafPartitions(tableNameLower);
+            session.commit();
+
+            String columnList = columns.stream().map(String::toLowerCase).collect(Collectors.joining(", "));
+            String conflict = conflictClause(columns, conflictColumns);
+            List<Future<Void>> tasks = new ArrayList<>();
+            for (Map.Entry<String, String> partition : partitions.entrySet()) {
+                String sql = "INSERT INTO " + partition.getKey() + " (" + columnList + ") SELECT " + columnList
+                        + " FROM " + stage + " WHERE " + partition.getValue() + conflict;
+                tasks.add(syncExecutors.partitions().submit(() -> {
+                    try (SyncSession partitionSession = SyncSession.open(dataSource)) {
+                        BatchFlushEvent event = new BatchFlushEvent();
+                        event.begin();
+                        try {
+                            event.rows = partitionSession.executeUpdate(sql);
+                        } finally {
+                            event.table = partition.getKey();
+                            event.sqlKind = "UPSERT";
+                            event.commit();
+                        }
+                        partitionSession.commit();
+                    }
+                    return null;
+                }));
+            }
+            awaitAll(tasks);
+        } catch (Exception e) {
+            try {
+                session.rollback();
+                session.execute("DROP TABLE IF EXISTS " + stage);
+                session.commit();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        session.execute("DROP TABLE IF EXISTS " + stage);
+    }
+
+    private static <T> List<T> awaitAll(List<Future<T>> tasks) throws InterruptedException, ExecutionException {
+        List<T> results = new ArrayList<>();
+        ExecutionException failure = null;
+        for (Future<T> task : tasks) {
+            try {
+                results.add(task.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            } catch (InterruptedException e) {
+                tasks.forEach(pending -> pending.cancel(true));
+                throw e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private void updateTableData(SyncSession session, String tableName, RowBuffer data,
+                                 String primaryKey, Config.Partitioning partitioning) throws SQLException {
         if (data.isEmpty()) {
             return;
         }
         
-        List<String> columns = getColumnNames(tableName);
+        List<String> columns = data.getColumns();
         String tableNameLower = tableName.toLowerCase();
         String primaryKeyLower = primaryKey.toLowerCase();
+        List<String> conflictColumns = partitionPlanner.conflictColumns(partitioning, columns, primaryKey);
+        int batchSize = Math.max(1, config.getBuffer().getBatchSize());
         
-        ensureUniqueConstraint(tableNameLower, primaryKeyLower);
-        
-        StringBuilder insertSql = new StringBuilder();
-        makeInsert(columns, tableNameLower, insertSql);
-        insertSql.append(") ON CONFLICT (").append(primaryKeyLower).append(") DO UPDATE SET ");
-        
-        List<String> updateColumns = columns.stream()
-                .filter(c -> !c.equalsIgnoreCase(primaryKey))
-                .map(c -> c.toLowerCase() + " = EXCLUDED." + c.toLowerCase())
-                .collect(Collectors.toList());
-        
-        if (updateColumns.isEmpty()) {
-            insertSql = new StringBuilder();
-            makeInsert(columns, tableNameLower, insertSql);
-            insertSql.append(") ON CONFLICT (").append(primaryKeyLower).append(") DO NOTHING");
+        if (conflictColumns.size() == 1) {
+            session.ensureUniqueConstraint(tableNameLower, primaryKeyLower);
         } else {
-            insertSql.append(String.join(", ", updateColumns));
+            String stage = "xml_moved_" + tableNameLower;
+            String partitionColumn = conflictColumns.get(1);
+            executeDDL(session, stage, "CREATE TABLE", "CREATE TEMPORARY TABLE " + stage + " (" + primaryKeyLower + " TEXT, "
+                    + partitionColumn.toLowerCase() + " TEXT) ON COMMIT DROP");
+            copyRows(session, stage, List.of(primaryKey, partitionColumn), data);
+            deleteMovedRows(session, tableNameLower, stage, primaryKey, partitionColumn);
         }
+
+        String insertSql = upsertSqlCache.computeIfAbsent(
+                tableNameLower + "|" + String.join(",", conflictColumns) + "|" + String.join(",", columns),
+                key -> makeUpsert(columns, tableNameLower, conflictColumns));
         
         List<Object[]> batchParams = new ArrayList<>();
-        for (Map<String, Object> row : data) {
-            Object[] params = new Object[columns.size()];
-            for (int i = 0; i < columns.size(); i++) {
-                params[i] = row.get(columns.get(i));
+        for (Object[] row : data) {
+            batchParams.add(row);
+            if (batchParams.size() >= batchSize) {
+                executeBatch(session, tableNameLower, "UPSERT", insertSql, batchParams);
+                batchParams.clear();
             }
-            batchParams.add(params);
         }
-        
-        executeBatch(insertSql.toString(), batchParams);
-    }
-
-    private void makeInsert(List<String> columns, String tableNameLower, StringBuilder insertSql) {
-        insertSql.append("INSERT INTO ").append(tableNameLower).append(" (");
-        insertSql.append(columns.stream().map(String::toLowerCase).collect(Collectors.joining(", ")));
-        insertSql.append(") VALUES (");
-        insertSql.append(columns.stream().map(c -> "?").collect(Collectors.joining(", ")));
+        if (!batchParams.isEmpty()) {
+            executeBatch(session, tableNameLower, "UPSERT", insertSql, batchParams);
+        }
     }
 
-    private void ensureUniqueConstraint(String tableName, String columnName) throws SQLException {
-        try (Connection connection = dataSource.getConnection()) {
-            DatabaseMetaData metaData = connection.getMetaData();
-            
-            boolean hasPrimaryKey = false;
-            try (ResultSet pkRs = metaData.getPrimaryKeys(null, null, tableName)) {
-                while (pkRs.next()) {
-                    if (columnName.equalsIgnoreCase(pkRs.getString("COLUMN_NAME"))) {
-                        hasPrimaryKey = true;
-                        break;
+    private void copyRows(SyncSession session, String table, List<String> columns, RowBuffer data)
+            throws SQLException {
+        int[] indexes = columns.stream().mapToInt(data::indexOf).toArray();
+        String sql = "COPY " + table + " (" + columns.stream().map(String::toLowerCase).collect(Collectors.joining(", "))
+                + ") FROM STDIN WITH (FORMAT csv)";
+
+        BatchFlushEvent event = new BatchFlushEvent();
+        event.begin();
+        long rows = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(session.copyIn(sql), StandardCharsets.UTF_8))) {
+            for (Object[] row : data) {
+                for (int i = 0; i < indexes.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
                     }
-                }
-            }
-            
-            if (!hasPrimaryKey) {
-                boolean hasUniqueIndex = false;
-                try (ResultSet indexRs = metaData.getIndexInfo(null, null, tableName, false, false)) {
-                    while (indexRs.next()) {
-                        if (!indexRs.getBoolean("NON_UNIQUE") && 
-                            columnName.equalsIgnoreCase(indexRs.getString("COLUMN_NAME"))) {
-                            hasUniqueIndex = true;
-                            break;
-                        }
+                    Object value = row[indexes[i]];
+                    if (value != null) {
+                        writer.write('"' + value.toString().replace("\"", "\"\"") + '"');
                     }
                 }
-                
-                if (!hasUniqueIndex) {
-                    String createIndexSql = String.format(
-                        "CREATE UNIQUE INDEX IF NOT EXISTS idx_%s_%s ON %s (%s)",
-                        tableName, columnName, tableName, columnName
-                    );
-                    executeDDL(createIndexSql);
-                }
+                writer.write('\n');
+                rows++;
             }
+        } catch (IOException e) {
+            throw new SQLException("COPY FROM STDIN failed: " + e.getMessage(), e);
+        } finally {
+            event.table = table;
+            event.sqlKind = "COPY";
+            event.rows = rows;
+            event.commit();
         }
     }
 
-    private boolean tableExists(String tableName) throws SQLException {
-        try (Connection connection = dataSource.getConnection()) {
-            DatabaseMetaData metaData = connection.getMetaData();
-            ResultSet tables = metaData.getTables(null, null, tableName.toLowerCase(), null);
-            return tables.next();
+    private void deleteMovedRows(SyncSession session, String tableNameLower, String stage, String primaryKey,
+                                 String partitionColumn) throws SQLException {
+        String primaryKeyLower = primaryKey.toLowerCase();
+        String partitionColumnLower = partitionColumn.toLowerCase();
+        BatchFlushEvent event = new BatchFlushEvent();
+        event.begin();
+        try {
+            event.rows = session.executeUpdate("DELETE FROM " + tableNameLower + " t USING " + stage + " s WHERE t."
+                    + primaryKeyLower + " = s." + primaryKeyLower + " AND t." + partitionColumnLower
+                    + " IS DISTINCT FROM s." + partitionColumnLower);
+        } finally {
+            event.table = tableNameLower;
+            event.sqlKind = "DELETE";
+            event.commit();
         }
     }
 
-    private List<String> getTableColumns(String tableName) throws SQLException {
-        List<String> columns = new ArrayList<>();
-        try (Connection connection = dataSource.getConnection()) {
-            DatabaseMetaData metaData = connection.getMetaData();
-            ResultSet rs = metaData.getColumns(null, null, tableName.toLowerCase(), null);
-            while (rs.next()) {
-                columns.add(rs.getString("COLUMN_NAME"));
+    private boolean hasHierarchy(String tableName, List<String> columns) {
+        return "categories".equalsIgnoreCase(tableName) && columns.contains("id") && columns.contains("parentId");
+    }
+
+    private void rebuildHierarchy(SyncSession session, RowBuffer data) throws SQLException {
+        if (!session.tableExists(CategoryRepository.CLOSURE_TABLE)) {
+            executeDDL(session, CategoryRepository.CLOSURE_TABLE, "CREATE TABLE", categoryRepository.closureTableDDL());
+            executeDDL(session, CategoryRepository.CLOSURE_TABLE, "CREATE INDEX", categoryRepository.closureIndexDDL());
+        }
+
+        int idIndex = data.indexOf("id");
+        int parentIndex = data.indexOf("parentId");
+        Map<String, String> parents = new HashMap<>();
+        for (Object[] row : data) {
+            if (row[idIndex] != null) {
+                parents.put(row[idIndex].toString(), row[parentIndex] != null ? row[parentIndex].toString() : null);
             }
         }
-        return columns;
+
+        BatchFlushEvent event = new BatchFlushEvent();
+        event.begin();
+        try {
+            event.rows = categoryRepository.replaceClosure(session, parents);
+        } finally {
+            event.table = CategoryRepository.CLOSURE_TABLE;
+            event.sqlKind = "COPY";
+            event.commit();
+        }
     }
 
-    private boolean isColumnUnique(String tableName, String columnName) throws SQLException {
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement()) {
-            
-            String tableNameLower = tableName.toLowerCase();
-            String columnNameLower = columnName.toLowerCase();
-            
-            if ("offers".equalsIgnoreCase(tableName) && "vendorcode".equals(columnNameLower)) {
-                return true;
-            }
-            
-            String sql = String.format(
-                "SELECT COUNT(*) as total, COUNT(DISTINCT %s) as distinct_count FROM %s",
-                columnName, tableNameLower
-            );
-            
-            ResultSet rs = statement.executeQuery(sql);
-            if (rs.next()) {
-                int total = rs.getInt("total");
-                int distinct = rs.getInt("distinct_count");
-                return total == distinct && total > 0;
-            }
-            return false;
+    private String makeUpsert(List<String> columns, String tableNameLower, List<String> conflictColumns) {
+        StringBuilder insertSql = new StringBuilder();
+        makeInsert(columns, tableNameLower, insertSql);
+        insertSql.append(")").append(conflictClause(columns, conflictColumns));
+        return insertSql.toString();
+    }
+
+    private String conflictClause(List<String> columns, List<String> conflictColumns) {
+        StringBuilder clause = new StringBuilder(" ON CONFLICT (")
+                .append(conflictColumns.stream().map(String::toLowerCase).collect(Collectors.joining(", ")))
+                .append(") ");
+
+        List<String> updateColumns = columns.stream()
+                .filter(c -> conflictColumns.stream().noneMatch(c::equalsIgnoreCase))
+                .map(c -> c.toLowerCase() + " = EXCLUDED." + c.toLowerCase())
+                .collect(Collectors.toList());
+
+        if (updateColumns.isEmpty()) {
+            clause.append("DO NOTHING");
+        } else {
+            clause.append("DO UPDATE SET ").append(String.join(", ", updateColumns));
         }
+        return clause.toString();
     }
 
-    private void executeDDL(String ddl) throws SQLException {
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement()) {
-            statement.execute(ddl);
+    private void makeInsert(List<String> columns, String tableNameLower, StringBuilder insertSql) {
+        insertSql.append("INSERT INTO ").append(tableNameLower).append(" (");
+        insertSql.append(columns.stream().map(String::toLowerCase).collect(Collectors.joining(", ")));
+        insertSql.append(") VALUES (");
+        insertSql.append(columns.stream().map(c -> "?").collect(Collectors.joining(", ")));
+    }
+
+    private boolean isColumnUnique(SyncSession session, String tableName, String columnName) throws SQLException {
+        if ("offers".equalsIgnoreCase(tableName) && "vendorcode".equals(columnName.toLowerCase())) {
+            return true;
         }
+        return session.isColumnUnique(tableName, columnName);
     }
 
-    private void executeBatch(String sql, List<Object[]> batchParams) throws SQLException {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            
-            for (Object[] params : batchParams) {
-                for (int i = 0; i < params.length; i++) {
-                    statement.setObject(i + 1, params[i]);
+    private void executeBatch(SyncSession session, String tableName, String sqlKind, String sql,
+                              List<Object[]> batchParams) throws SQLException {
+        BatchFlushEvent event = new BatchFlushEvent();
+        event.begin();
+        try {
+            session.executeBatch(sql, batchParams);
+        } finally {
+            event.table = tableName;
+            event.sqlKind = sqlKind;
+            event.rows = batchParams.size();
+            event.commit();
+        }
+    }
+
+    private void executeDDL(SyncSession session, String tableName, String sqlKind, String ddl) throws SQLException {
+        DdlEvent event = new DdlEvent();
+        event.begin();
+        try {
+            if (ddlAdvisor.requiresAutoCommit(ddl)) {
+                executeConcurrently(session, ddl);
+            } else {
+                session.execute(ddl);
+            }
+        } finally {
+            event.table = tableName.toLowerCase();
+            event.sqlKind = sqlKind;
+            event.commit();
+        }
+    }
+
+    private void executeConcurrently(SyncSession session, String ddl) throws SQLException {
+        try {
+            session.executeAfterCommit(ddl);
+        } catch (SQLException e) {
+            String cleanup = ddlAdvisor.cleanupSql(ddl);
+            if (cleanup != null) {
+                try {
+                    session.execute(cleanup);
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
                 }
-                statement.addBatch();
             }
-            
-            statement.executeBatch();
+            throw e;
         }
     }
 }
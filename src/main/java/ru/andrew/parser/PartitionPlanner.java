@@ -0,0 +1,133 @@
+package ru.andrew.parser;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.andrew.config.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+@Component
+public class PartitionPlanner {
+
+    private final Map<String, Config.Partitioning> settings;
+
+    @Autowired
+    public PartitionPlanner(Config config) {
+        this.settings = config.getPartitioning();
+    }
+
+    public Config.Partitioning settingsFor(String tableName) {
+        for (Map.Entry<String, Config.Partitioning> entry : settings.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(tableName)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    public boolean isHash(Config.Partitioning partitioning) {
+        return "hash".equalsIgnoreCase(strategy(partitioning));
+    }
+
+    public boolean isList(Config.Partitioning partitioning) {
+        return "list".equalsIgnoreCase(strategy(partitioning));
+    }
+
+    public String partitionColumn(Config.Partitioning partitioning, List<String> columns, String primaryKey) {
+        if (isHash(partitioning)) {
+            return primaryKey;
+        }
+        if (partitioning.getColumn() == null) {
+            throw new RuntimeException("Partition column is required for " + strategy(partitioning) + " partitioning");
+        }
+        for (String column : columns) {
+            if (column.equalsIgnoreCase(partitioning.getColumn())) {
+                return column;
+            }
+        }
+        throw new RuntimeException("Partition column " + partitioning.getColumn() + " not found in XML");
+    }
+
+    public List<String> conflictColumns(Config.Partitioning partitioning, List<String> columns, String primaryKey) {
+        List<String> conflictColumns = new ArrayList<>();
+        conflictColumns.add(primaryKey);
+        if (partitioning != null) {
+            String partitionColumn = partitionColumn(partitioning, columns, primaryKey);
+            if (!partitionColumn.equalsIgnoreCase(primaryKey)) {
+                conflictColumns.add(partitionColumn);
+            }
+        }
+        return conflictColumns;
+    }
+
+    public String partitionClause(Config.Partitioning partitioning, List<String> columns, String primaryKey) {
+        return " PARTITION BY " + strategy(partitioning).toUpperCase()
+                + " (" + partitionColumn(partitioning, columns, primaryKey).toLowerCase() + ")";
+    }
+
+    public List<String> partitionDDL(String tableName, Config.Partitioning partitioning, Collection<String> values) {
+        String table = tableName.toLowerCase();
+        List<String> statements = new ArrayList<>();
+
+        switch (strategy(partitioning).toLowerCase()) {
+            case "hash" -> {
+                int modulus = Math.max(1, partitioning.getPartitions());
+                for (int i = 0; i < modulus; i++) {
+                    statements.add("CREATE TABLE IF NOT EXISTS " + table + "_p" + i + " PARTITION OF " + table
+                            + " FOR VALUES WITH (MODULUS " + modulus + ", REMAINDER " + i + ")");
+                }
+            }
+            case "list" -> {
+                for (String value : values) {
+                    if (value != null) {
+                        statements.add("CREATE TABLE IF NOT EXISTS " + table + "_" + suffix(value)
+                                + " PARTITION OF " + table + " FOR VALUES IN (" + literal(value) + ")");
+                    }
+                }
+                statements.add("CREATE TABLE IF NOT EXISTS " + table + "_default PARTITION OF " + table + " DEFAULT");
+            }
+            case "range" -> {
+                String lower = "MINVALUE";
+                for (int i = 0; i <= partitioning.getBounds().size(); i++) {
+                    String upper = i < partitioning.getBounds().size()
+                            ? literal(partitioning.getBounds().get(i))
+                            : "MAXVALUE";
+                    statements.add("CREATE TABLE IF NOT EXISTS " + table + "_r" + i + " PARTITION OF " + table
+                            + " FOR VALUES FROM (" + lower + ") TO (" + upper + ")");
+                    lower = upper;
+                }
+            }
+            default -> throw new RuntimeException("Unsupported partitioning strategy: " + partitioning.getStrategy());
+        }
+        return statements;
+    }
+
+    public String describe(Config.Partitioning partitioning, List<String> columns, String primaryKey) {
+        return partitionClause(partitioning, columns, primaryKey).trim()
+                + (isHash(partitioning) ? ", " + partitioning.getPartitions() + " partitions" : "");
+    }
+
+    private String strategy(Config.Partitioning partitioning) {
+        return partitioning.getStrategy() == null ? "hash" : partitioning.getStrategy();
+    }
+
+    private String suffix(String value) {
+        String sanitized = value.toLowerCase().replaceAll("[^a-z0-9]+", "_");
+        if (sanitized.length() > 30) {
+            sanitized = sanitized.substring(0, 30);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+        return sanitized + "_" + HexFormat.of().toHexDigits((int) crc.getValue());
+    }
+
+    private String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,217 @@
+package ru.andrew.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+public class RowBuffer implements Iterable<Object[]>, AutoCloseable {
+
+    private static final int ROW_OVERHEAD = 64;
+    private static final int VALUE_OVERHEAD = 48;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private final List<String> columns;
+    private final long heapBudget;
+    private final Path spillDirectory;
+    private final List<Object[]> rows = new ArrayList<>();
+    private final Set<Closeable> readers = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long heapBytes;
+    private long size;
+    private Path spillFile;
+    private DataOutputStream spillOutput;
+    private long spilledRows;
+    private long spilledBytes;
+
+    public RowBuffer(List<String> columns, long heapBudget, Path spillDirectory) {
+        this.columns = List.copyOf(columns);
+        this.heapBudget = heapBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public int indexOf(String column) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    public void add(Map<String, Object> row) {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = row.get(columns.get(i));
+            values[i] = value != null ? value.toString() : null;
+        }
+        add(values);
+    }
+
+    public void add(Object[] values) {
+        rows.add(values);
+        size++;
+        heapBytes += ROW_OVERHEAD;
+        for (Object value : values) {
+            heapBytes += value != null ? VALUE_OVERHEAD + 2L * value.toString().length() : 8;
+        }
+        if (heapBytes > heapBudget) {
+            spill();
+        }
+    }
+
+    private void spill() {
+        try {
+            if (spillOutput == null) {
+                Files.createDirectories(spillDirectory);
+                spillFile = Files.createTempFile(spillDirectory, "rows-", ".bin");
+                spillOutput = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(spillFile, StandardOpenOption.APPEND), IO_BUFFER_SIZE));
+            }
+
+            for (Object[] row : rows) {
+                for (Object value : row) {
+                    if (value == null) {
+                        spillOutput.writeInt(-1);
+                        spilledBytes += Integer.BYTES;
+                    } else {
+                        byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                        spillOutput.writeInt(bytes.length);
+                        spillOutput.write(bytes);
+                        spilledBytes += Integer.BYTES + bytes.length;
+                    }
+                }
+            }
+
+            spilledRows += rows.size();
+            rows.clear();
+            heapBytes = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill rows to disk", e);
+        }
+    }
+
+    @Override
+    public Iterator<Object[]> iterator() {
+        DataInputStream spill = openSpill();
+        return new Iterator<>() {
+            private DataInputStream input = spill;
+            private long remaining = spilledRows;
+            private Iterator<Object[]> heapRows;
+
+            @Override
+            public boolean hasNext() {
+                if (remaining > 0) {
+                    return true;
+                }
+                closeInput();
+                if (heapRows == null) {
+                    heapRows = rows.iterator();
+                }
+                return heapRows.hasNext();
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (remaining == 0) {
+                    return heapRows.next();
+                }
+                try {
+                    Object[] row = new Object[columns.size()];
+                    for (int i = 0; i < row.length; i++) {
+                        int length = input.readInt();
+                        if (length >= 0) {
+                            row[i] = new String(input.readNBytes(length), StandardCharsets.UTF_8);
+                        }
+                    }
+                    remaining--;
+                    return row;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read spilled rows from " + spillFile, e);
+                }
+            }
+
+            private void closeInput() {
+                if (input != null) {
+                    closeReader(input);
+                    input = null;
+                }
+            }
+        };
+    }
+
+    private DataInputStream openSpill() {
+        if (spillFile == null) {
+            return null;
+        }
+        try {
+            spillOutput.flush();
+            DataInputStream input = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(spillFile), IO_BUFFER_SIZE));
+            readers.add(input);
+            return input;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open spilled rows", e);
+        }
+    }
+
+    private void closeReader(Closeable reader) {
+        readers.remove(reader);
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close spilled rows", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        rows.clear();
+        try {
+            for (Closeable reader : List.copyOf(readers)) {
+                closeReader(reader);
+            }
+            if (spillOutput != null) {
+                spillOutput.close();
+            }
+            if (spillFile != null) {
+                Files.deleteIfExists(spillFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete spilled rows", e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package ru.andrew.parser;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.andrew.config.Config;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+@Component
+public class ShardedFeedParser {
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int ROW_EXPANSION = 4;
+    private static final long MIN_SHARD_BYTES = 4 * 1024;
+    private static final List<String> SHARD_PATH = Collections.singletonList(null);
+
+    private final Config.Parallel settings;
+    private final long heapBudget;
+    private final XMLInputFactory inputFactory;
+
+    @Autowired
+    public ShardedFeedParser(Config config) {
+        this.settings = config.getParallel();
+        this.heapBudget = config.getBuffer().getHeapBudget().toBytes();
+        this.inputFactory = StreamingFeedParser.newInputFactory();
+    }
+
+    public boolean isApplicable(Path file, String tableName) {
+        if (!settings.isEnabled() || file == null || !"offers".equalsIgnoreCase(tableName)) {
+            return false;
+        }
+        try {
+            int[] section = MappedFeed.open(file).section(tableName);
+            return section != null && section[1] - section[0] >= settings.getMinSectionBytes();
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    public void parse(Path file, String tableName, String itemName, Consumer<Map<String, Object>> sink) {
+        try {
+            MappedFeed feed = MappedFeed.open(file);
+            int[] section = feed.section(tableName);
+            if (section == null) {
+                return;
+            }
+
+            Charset charset = feed.charset();
+            byte[] itemEnd = ("</" + itemName + ">").getBytes(charset);
+            int parallelism = Math.max(1, settings.getParallelism());
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                Deque<Future<List<Map<String, Object>>>> inFlight = new ArrayDeque<>();
+                for (int[] shard : split(feed, section[0], section[1], itemEnd)) {
+                    ByteBuffer slice = feed.buffer().slice(shard[0], shard[1] - shard[0]);
+                    inFlight.add(pool.submit(() -> parseShard(slice, charset)));
+                    if (inFlight.size() > parallelism) {
+                        inFlight.poll().get().forEach(sink);
+                    }
+                }
+                while (!inFlight.isEmpty()) {
+                    inFlight.poll().get().forEach(sink);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        } catch (IOException | ExecutionException e) {
+            throw new RuntimeException("Failed to parse table " + tableName + " in parallel", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Parallel parsing interrupted", e);
+        }
+    }
+
+    List<int[]> split(MappedFeed feed, int start, int end, byte[] itemEnd) {
+        int parallelism = Math.max(1, settings.getParallelism());
+        long chunkSize = Math.max(1, Math.min((long) (end - start) / (parallelism * CHUNKS_PER_THREAD),
+                maxShardBytes(parallelism)));
+
+        List<int[]> shards = new ArrayList<>();
+        int from = start;
+        while (from < end) {
+            int target = (int) Math.min(end, from + chunkSize);
+            int to = end;
+            if (target < end) {
+                int boundary = feed.indexOf(itemEnd, target, end);
+                if (boundary >= 0) {
+                    to = boundary + itemEnd.length;
+                }
+            }
+            shards.add(new int[]{from, to});
+            from = to;
+        }
+        return shards;
+    }
+
+    long maxShardBytes(int parallelism) {
+        return Math.max(MIN_SHARD_BYTES, heapBudget / ((long) (parallelism + 1) * ROW_EXPANSION));
+    }
+
+    private List<Map<String, Object>> parseShard(ByteBuffer shard, Charset charset) throws XMLStreamException {
+        InputStream in = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream("<shard>".getBytes(charset)),
+                new ByteBufferInputStream(shard),
+                new ByteArrayInputStream("</shard>".getBytes(charset)))));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(in, charset.name());
+        try {
+            StreamingFeedParser.readItems(reader, SHARD_PATH, false, rows::add);
+        } finally {
+            reader.close();
+        }
+        return rows;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
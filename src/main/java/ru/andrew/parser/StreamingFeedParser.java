@@ -0,0 +1,212 @@
+package ru.andrew.parser;
+
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Component
+public class StreamingFeedParser {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final XMLInputFactory inputFactory;
+
+    public StreamingFeedParser() {
+        this.inputFactory = newInputFactory();
+    }
+
+    static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    FeedOutline outline(Path file) {
+        Map<String, Section> rootChildren = new LinkedHashMap<>();
+        Map<String, Section> shopChildren = new LinkedHashMap<>();
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+            try {
+                // sections.get(d) is the candidate table opened at depth d + 1, or null
+                List<Section> sections = new ArrayList<>();
+                boolean inShop = false;
+
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT -> {
+                            String name = reader.getLocalName();
+                            int depth = sections.size() + 1;
+                            Section section = null;
+
+                            if (depth == 2) {
+                                section = rootChildren.computeIfAbsent(name, Section::new);
+                                inShop = "shop".equals(name);
+                            } else if (depth == 3 && inShop) {
+                                section = shopChildren.computeIfAbsent(name, Section::new);
+                            }
+
+                            Section table = depth >= 2 ? sections.get(depth - 2) : null;
+                            if (table != null) {
+                                table.addItem(reader);
+                            } else if (depth >= 3 && sections.get(depth - 3) != null) {
+                                sections.get(depth - 3).fields.add(name);
+                            }
+                            sections.add(section);
+                        }
+                        case XMLStreamConstants.END_ELEMENT -> sections.remove(sections.size() - 1);
+                        default -> {
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            throw new RuntimeException("Failed to parse XML", e);
+        }
+
+        boolean shop = rootChildren.containsKey("shop");
+        Map<String, Section> tables = shop ? shopChildren : rootChildren;
+        List<String> tableNames = new ArrayList<>();
+        Map<String, String> itemNames = new LinkedHashMap<>();
+        Map<String, List<String>> columns = new LinkedHashMap<>();
+        Map<String, Long> itemCounts = new LinkedHashMap<>();
+        for (Section section : tables.values()) {
+            if (section.items == 0) {
+                continue;
+            }
+            tableNames.add(section.name);
+            itemNames.put(section.name, section.itemName);
+            columns.put(section.name, section.columnNames());
+            itemCounts.put(section.name, section.items);
+        }
+        return new FeedOutline(tableNames, itemNames, columns, itemCounts,
+                shop ? Arrays.asList(null, "shop") : Arrays.asList((String) null));
+    }
+
+    void parse(Path file, FeedOutline outline, String tableName, Consumer<Map<String, Object>> sink) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+            try {
+                readItems(reader, outline.pathTo(tableName), "categories".equalsIgnoreCase(tableName), sink);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            throw new RuntimeException("Failed to extract data for table: " + tableName, e);
+        }
+    }
+
+    static void readItems(XMLStreamReader reader, List<String> tablePath, boolean textAsName,
+                          Consumer<Map<String, Object>> sink) throws XMLStreamException {
+        int tableDepth = tablePath.size();
+        int depth = 0;
+        int matched = 0;
+        Map<String, Object> row = null;
+        String field = null;
+        StringBuilder text = null;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    depth++;
+                    if (depth <= tableDepth) {
+                        String expected = tablePath.get(depth - 1);
+                        if (matched == depth - 1 && (expected == null || expected.equals(reader.getLocalName()))) {
+                            matched = depth;
+                        }
+                    } else if (matched == tableDepth && depth == tableDepth + 1) {
+                        row = new LinkedHashMap<>();
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            row.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                        }
+                        text = textAsName ? new StringBuilder() : null;
+                    } else if (row != null && depth == tableDepth + 2 && !textAsName) {
+                        field = reader.getLocalName();
+                        text = new StringBuilder();
+                    }
+                }
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                    if (text != null) {
+                        text.append(reader.getText());
+                    }
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    if (row != null && depth == tableDepth + 2 && field != null) {
+                        row.put(field, text.toString().trim());
+                        field = null;
+                        text = null;
+                    } else if (row != null && depth == tableDepth + 1) {
+                        if (textAsName && !text.toString().trim().isEmpty()) {
+                            row.put("name", text.toString().trim());
+                        }
+                        if (!row.isEmpty()) {
+                            sink.accept(row);
+                        }
+                        row = null;
+                        text = null;
+                    }
+                    if (matched == depth) {
+                        matched--;
+                    }
+                    depth--;
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static class Section {
+        private final String name;
+        private final Set<String> columns = new LinkedHashSet<>();
+        private final Set<String> fields = new LinkedHashSet<>();
+        private String itemName;
+        private long items;
+
+        Section(String name) {
+            this.name = name;
+        }
+
+        void addItem(XMLStreamReader reader) {
+            items++;
+            if (itemName == null) {
+                itemName = reader.getLocalName();
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                columns.add(reader.getAttributeLocalName(i));
+            }
+        }
+
+        List<String> columnNames() {
+            Set<String> names = new LinkedHashSet<>(columns);
+            if ("offers".equalsIgnoreCase(name)) {
+                names.addAll(fields);
+            } else if ("categories".equalsIgnoreCase(name)) {
+                names.add("name");
+            } else if (!"currencies".equalsIgnoreCase(name)) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(names);
+        }
+    }
+}
@@ -4,10 +4,19 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class UpdateResponse {
     private String status;
     private String message;
+    private List<String> skippedTables = new ArrayList<>();
+
+    public UpdateResponse(String status, String message) {
+        this.status = status;
+        this.message = message;
+    }
 }
@@ -0,0 +1,78 @@
+package ru.andrew.database;
+
+import org.junit.jupiter.api.Test;
+import ru.andrew.database.CategoryRepository.ClosureRow;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CategoryRepositoryTest {
+
+    @Test
+    void closureContainsEveryAncestorWithDepth() {
+        Map<String, String> parents = new LinkedHashMap<>();
+        parents.put("1", null);
+        parents.put("2", "1");
+        parents.put("3", "2");
+        parents.put("4", "1");
+
+        assertEquals(Set.of(
+                new ClosureRow("1", "1", 0),
+                new ClosureRow("2", "2", 0),
+                new ClosureRow("1", "2", 1),
+                new ClosureRow("3", "3", 0),
+                new ClosureRow("2", "3", 1),
+                new ClosureRow("1", "3", 2),
+                new ClosureRow("4", "4", 0),
+                new ClosureRow("1", "4", 1)), walk(parents));
+    }
+
+    @Test
+    void unknownParentEndsThePath() {
+        Map<String, String> parents = new HashMap<>();
+        parents.put("7", "missing");
+
+        assertEquals(Set.of(new ClosureRow("7", "7", 0)), walk(parents));
+    }
+
+    @Test
+    void cyclesTerminate() {
+        Map<String, String> parents = new HashMap<>();
+        parents.put("a", "b");
+        parents.put("b", "a");
+
+        assertEquals(Set.of(
+                new ClosureRow("a", "a", 0),
+                new ClosureRow("b", "a", 1),
+                new ClosureRow("b", "b", 0),
+                new ClosureRow("a", "b", 1)), walk(parents));
+    }
+
+    @Test
+    void subtreeOfRootCoversEveryLevel() {
+        Map<String, String> parents = new HashMap<>();
+        for (int i = 1; i <= 40; i++) {
+            parents.put(String.valueOf(i), i <= 3 ? null : String.valueOf((i - 1) / 3));
+        }
+
+        List<ClosureRow> subtree = walk(parents).stream()
+                .filter(row -> row.ancestorId().equals("1"))
+                .toList();
+
+        assertEquals(14, subtree.size());
+        assertEquals(3, subtree.stream().mapToInt(ClosureRow::depth).max().orElse(-1));
+        assertEquals(40, walk(parents).stream().filter(row -> row.depth() == 0).count());
+    }
+
+    private Set<ClosureRow> walk(Map<String, String> parents) {
+        Set<ClosureRow> rows = new HashSet<>();
+        CategoryRepository.walkClosure(parents, rows::add);
+        return rows;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.andrew.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowBufferTest {
+
+    private static final List<String> COLUMNS = List.of("id", "name", "description");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void spilledRowsRoundTrip() {
+        List<Object[]> expected = new ArrayList<>();
+        try (RowBuffer buffer = new RowBuffer(COLUMNS, 4 * 1024, directory)) {
+            for (int i = 0; i < 1000; i++) {
+                Object[] row = {String.valueOf(i), "Товар «" + i + "» 📦", i % 3 == 0 ? null : ""};
+                expected.add(row);
+                buffer.add(row);
+            }
+
+            assertTrue(buffer.getSpilledBytes() > 0);
+            assertEquals(1000, buffer.size());
+            for (int pass = 0; pass < 2; pass++) {
+                List<Object[]> actual = new ArrayList<>();
+                buffer.forEach(actual::add);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertArrayEquals(expected.get(i), actual.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void mapRowsFollowColumnOrder() {
+        try (RowBuffer buffer = new RowBuffer(COLUMNS, 0, directory)) {
+            buffer.add(Map.of("name", "Категория", "id", 7));
+
+            assertEquals(1, buffer.indexOf("NAME"));
+            assertArrayEquals(new Object[]{"7", "Категория", null}, buffer.iterator().next());
+        }
+    }
+
+    @Test
+    void closeReleasesAbandonedIteratorsAndDeletesSpill() throws IOException {
+        RowBuffer buffer = new RowBuffer(COLUMNS, 0, directory);
+        for (int i = 0; i < 100; i++) {
+            buffer.add(new Object[]{String.valueOf(i), "name", null});
+        }
+        Iterator<Object[]> abandoned = buffer.iterator();
+        abandoned.next();
+        buffer.iterator().next();
+
+        buffer.close();
+
+        assertThrows(UncheckedIOException.class, abandoned::next);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.andrew.parser;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.andrew.config.Config;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedFeedParserTest {
+
+    private static final Charset CP1251 = Charset.forName("windows-1251");
+
+    @TempDir
+    Path directory;
+
+    private Config config;
+    private Path feed;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new Config();
+        config.getParallel().setEnabled(true);
+        config.getParallel().setParallelism(3);
+        config.getParallel().setMinSectionBytes(1);
+
+        StringBuilder xml = new StringBuilder("""
+                <?xml version="1.0" encoding="windows-1251"?>
+                <!DOCTYPE yml_catalog SYSTEM "shops.dtd">
+                <yml_catalog date="2024-01-01 00:00">
+                <shop>
+                <name>Магазин</name>
+                <currencies><currency id="RUR" rate="1"/></currencies>
+                <categories>
+                <category id="1">Корень</category>
+                <category id="2" parentId="1">Дочерняя</category>
+                </categories>
+                <offers>
+                """);
+        for (int i = 0; i < 500; i++) {
+            xml.append("<offer id=\"").append(i).append("\" available=\"true\">")
+               .append("<name>Товар &lt;").append(i).append("&gt; <![CDATA[№]]></name>")
+               .append("<categoryId>").append(i % 2 + 1).append("</categoryId>")
+               .append(i % 7 == 0 ? "<vendor>Производитель</vendor>" : "")
+               .append("</offer>\n");
+        }
+        xml.append("</offers>\n</shop>\n</yml_catalog>\n");
+        feed = directory.resolve("feed.xml");
+        Files.write(feed, xml.toString().getBytes(CP1251));
+    }
+
+    @Test
+    void shardsEndOnItemBoundaries() throws IOException {
+        MappedFeed mapped = MappedFeed.open(feed);
+        int[] section = mapped.section("offers");
+        byte[] itemEnd = "</offer>".getBytes(CP1251);
+
+        List<int[]> shards = new ShardedFeedParser(config).split(mapped, section[0], section[1], itemEnd);
+
+        assertTrue(shards.size() > 1);
+        int from = section[0];
+        for (int[] shard : shards) {
+            assertEquals(from, shard[0]);
+            if (shard[1] < section[1]) {
+                assertEquals(shard[1] - itemEnd.length, mapped.indexOf(itemEnd, shard[1] - itemEnd.length, shard[1]));
+            }
+            from = shard[1];
+        }
+        assertEquals(section[1], from);
+    }
+
+    @Test
+    void shardSizeIsCappedByHeapBudget() throws IOException {
+        MappedFeed mapped = MappedFeed.open(feed);
+        int[] section = mapped.section("offers");
+        byte[] itemEnd = "</offer>".getBytes(CP1251);
+        config.getBuffer().setHeapBudget(DataSize.ofBytes(0));
+        ShardedFeedParser parser = new ShardedFeedParser(config);
+
+        List<int[]> shards = parser.split(mapped, section[0], section[1], itemEnd);
+
+        long maxShard = parser.maxShardBytes(3);
+        assertTrue((section[1] - section[0]) / maxShard > 3 * 4);
+        assertTrue(shards.size() >= (section[1] - section[0]) / maxShard);
+        for (int[] shard : shards) {
+            assertTrue(shard[1] - shard[0] <= maxShard + 256);
+        }
+    }
+
+    @Test
+    void shardedRowsMatchStreamingRows() {
+        StreamingFeedParser streaming = new StreamingFeedParser();
+        FeedOutline outline = streaming.outline(feed);
+        List<Map<String, Object>> expected = new ArrayList<>();
+        streaming.parse(feed, outline, "offers", expected::add);
+
+        List<Map<String, Object>> actual = new ArrayList<>();
+        new ShardedFeedParser(config).parse(feed, "offers", outline.itemNames().get("offers"), actual::add);
+
+        assertEquals(500, expected.size());
+        assertEquals("Товар <7> №", expected.get(7).get("name"));
+        assertEquals("Производитель", expected.get(7).get("vendor"));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void outlineCollectsColumnsAcrossAllItems() {
+        FeedOutline outline = new StreamingFeedParser().outline(feed);
+
+        assertEquals(List.of("currencies", "categories", "offers"), outline.tableNames());
+        assertEquals(List.of("id", "parentId", "name"), outline.columns().get("categories"));
+        assertEquals(List.of("id", "available", "name", "categoryId", "vendor"), outline.columns().get("offers"));
+        assertEquals("offer", outline.itemNames().get("offers"));
+        assertEquals(Map.of("currencies", 1L, "categories", 2L, "offers", 500L), outline.itemCounts());
+    }
+
+    @Test
+    void applicabilityUsesSectionSize() throws IOException {
+        int[] section = MappedFeed.open(feed).section("offers");
+        config.getParallel().setMinSectionBytes(section[1] - section[0] + 1);
+
+        assertTrue(Files.size(feed) > section[1] - section[0]);
+        assertFalse(new ShardedFeedParser(config).isApplicable(feed, "offers"));
+    }
+}